@@ -0,0 +1,252 @@
+package br.com.totustuus.carga;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.model.Curso;
+import br.com.totustuus.model.Topico;
+import br.com.totustuus.model.Usuario;
+import br.com.totustuus.model.dto.TokenDTO;
+import br.com.totustuus.repository.CursoRepository;
+import br.com.totustuus.repository.TopicoRepository;
+import br.com.totustuus.repository.UsuarioRepository;
+
+/**
+ * Teste de carga: sobe a aplicação inteira em uma porta aleatória (Tomcat,
+ * segurança, banco, caches) e executa requisições HTTP reais com várias threads
+ * ao mesmo tempo.
+ * 
+ * Cenários, executados um após o outro:
+ * 
+ * <ul>
+ * <li>lista: GET /topicos paginado, sem autenticação;</li>
+ * <li>detalhe: GET /topicos/{id} de tópicos aleatórios;</li>
+ * <li>login: POST /auth de todas as threads ao mesmo tempo;</li>
+ * <li>escrita: POST, PUT e DELETE de /topicos com um usuário autenticado.</li>
+ * </ul>
+ * 
+ * Cada cenário tem um aquecimento (não medido), para que o JIT, os caches e o
+ * pool de conexões não distorçam o início da medição.
+ * 
+ * O resultado (vazão e latências p50/p90/p99/p99.9 de cada endpoint) é exibido
+ * no console e gravado em target/carga-relatorio.json, para comparar versões.
+ * 
+ * Executar com: mvn -P carga test
+ * 
+ * Parâmetros (-D): carga.threads (8), carga.duracao (10 segundos por cenário),
+ * carga.aquecimento (3 segundos) e carga.topicos (2000 tópicos criados antes
+ * dos cenários).
+ * 
+ * @author thiago.machado
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class CargaTest {
+
+	private static final int THREADS = Integer.getInteger("carga.threads", 8);
+	private static final int DURACAO = Integer.getInteger("carga.duracao", 10);
+	private static final int AQUECIMENTO = Integer.getInteger("carga.aquecimento", 3);
+	private static final int TOPICOS = Integer.getInteger("carga.topicos", 2000);
+
+	private static final String LOGIN = "{\"email\":\"aluno@email.com\",\"senha\":\"123456\"}";
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private CursoRepository cursoRepository;
+
+	@Autowired
+	private ApplicationEventPublisher publicador;
+
+	private List<Long> ids;
+	private HttpHeaders autenticado;
+
+	/*
+	 * Os tópicos são gravados direto pelo repositório, já com o autor (o cadastro
+	 * pela API não informa o autor, e o detalhe precisa dele). O evento é
+	 * publicado para que contadores e índices em memória fiquem iguais aos de
+	 * tópicos cadastrados pela API.
+	 */
+	@Before
+	public void preparar() {
+		Usuario autor = usuarioRepository.findByEmail("aluno@email.com").get();
+		List<Curso> cursos = cursoRepository.findAll();
+
+		List<Topico> topicos = new ArrayList<>();
+		for (int i = 0; i < TOPICOS; i++) {
+			Topico topico = new Topico();
+			topico.setTitulo("Tópico de carga " + i);
+			topico.setMensagem("Mensagem do tópico de carga número " + i);
+			topico.setDataCriacao(LocalDateTime.now().minusMinutes(TOPICOS - i));
+			topico.setAutor(autor);
+			topico.setCurso(cursos.get(i % cursos.size()));
+			topicos.add(topico);
+		}
+		topicoRepository.saveAll(topicos);
+		publicador.publishEvent(TopicoAlteradoEvent.criados(topicos));
+
+		ids = new ArrayList<>();
+		for (Topico topico : topicos)
+			ids.add(topico.getId());
+
+		TokenDTO token = rest.postForObject("/auth", json(LOGIN, null), TokenDTO.class);
+		autenticado = new HttpHeaders();
+		autenticado.set(HttpHeaders.AUTHORIZATION, "Bearer " + token.getToken());
+	}
+
+	@Test
+	public void executarCenarios() throws Exception {
+		Map<String, Object> cenarios = new LinkedHashMap<>();
+
+		cenarios.put("lista", executar((medicoes, random) -> {
+			medicoes.medir("GET /topicos", () -> status(
+					rest.getForEntity("/topicos?pagina={pagina}&quantidade=10", String.class, random.nextInt(50))));
+		}));
+
+		cenarios.put("detalhe", executar((medicoes, random) -> {
+			Long id = ids.get(random.nextInt(ids.size()));
+			medicoes.medir("GET /topicos/{id}", () -> status(rest.getForEntity("/topicos/{id}", String.class, id)));
+		}));
+
+		cenarios.put("login", executar((medicoes, random) -> {
+			medicoes.medir("POST /auth", () -> status(rest.postForEntity("/auth", json(LOGIN, null), String.class)));
+		}));
+
+		cenarios.put("escrita", executar((medicoes, random) -> {
+			String corpo = "{\"titulo\":\"Carga " + random.nextInt(100000)
+					+ "\",\"mensagem\":\"Tópico criado pelo teste de carga\",\"cursoNome\":\"Spring Boot\"}";
+			AtomicReference<ResponseEntity<String>> criado = new AtomicReference<>();
+
+			medicoes.medir("POST /topicos", () -> {
+				criado.set(rest.postForEntity("/topicos", json(corpo, autenticado), String.class));
+				return status(criado.get());
+			});
+
+			if (criado.get() == null || criado.get().getHeaders().getLocation() == null)
+				return;
+
+			String uri = criado.get().getHeaders().getLocation().getPath();
+			medicoes.medir("PUT /topicos/{id}", () -> status(rest.exchange(uri, HttpMethod.PUT,
+					json("{\"titulo\":\"Carga alterada\",\"mensagem\":\"Tópico alterado pelo teste de carga\"}",
+							autenticado),
+					String.class)));
+			medicoes.medir("DELETE /topicos/{id}", () -> status(
+					rest.exchange(uri, HttpMethod.DELETE, new HttpEntity<>(autenticado), String.class)));
+		}));
+
+		Map<String, Object> relatorio = new LinkedHashMap<>();
+		relatorio.put("data", LocalDateTime.now().toString());
+		relatorio.put("threads", THREADS);
+		relatorio.put("duracaoSegundos", DURACAO);
+		relatorio.put("topicos", TOPICOS);
+		relatorio.put("cenarios", cenarios);
+
+		gravar(relatorio);
+	}
+
+	@FunctionalInterface
+	private interface Operacao {
+		void executar(Medicoes medicoes, ThreadLocalRandom random);
+	}
+
+	/*
+	 * Executa a operação em todas as threads, em loop: primeiro durante o
+	 * aquecimento (medições descartadas) e depois durante a medição.
+	 */
+	private Map<String, Object> executar(Operacao operacao) throws Exception {
+		executar(operacao, new Medicoes(), AQUECIMENTO);
+
+		Medicoes medicoes = new Medicoes();
+		executar(operacao, medicoes, DURACAO);
+
+		// Erros do servidor, exceto o 503 do login, que é a recusa esperada quando há logins demais
+		medicoes.getEndpoints().forEach((endpoint, medicao) -> medicao.getStatus().keySet().forEach((status) -> {
+			boolean esperado = status > 0 && (status < 500 || status == 503 && endpoint.equals("POST /auth"));
+			assertTrue(endpoint + " respondeu " + status, esperado);
+		}));
+
+		return medicoes.resumo();
+	}
+
+	private void executar(Operacao operacao, Medicoes medicoes, int segundos) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+
+		medicoes.iniciar();
+		List<Future<?>> threads = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			threads.add(executor.submit(() -> {
+				while (System.nanoTime() < limite)
+					operacao.executar(medicoes, ThreadLocalRandom.current());
+			}));
+		}
+
+		for (Future<?> thread : threads)
+			thread.get(); // Repassa as falhas das threads para o teste
+		medicoes.finalizar();
+
+		executor.shutdown();
+	}
+
+	private void gravar(Map<String, Object> relatorio) throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+		File arquivo = new File(System.getProperty("carga.relatorio", "target/carga-relatorio.json"));
+
+		objectMapper.writeValue(arquivo, relatorio);
+		System.out.println(objectMapper.writeValueAsString(relatorio));
+		System.out.println("Relatório gravado em " + arquivo.getAbsolutePath());
+	}
+
+	private static HttpEntity<String> json(String corpo, HttpHeaders autenticacao) {
+		HttpHeaders headers = new HttpHeaders();
+		if (autenticacao != null)
+			headers.putAll(autenticacao);
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return new HttpEntity<>(corpo, headers);
+	}
+
+	private static int status(ResponseEntity<?> resposta) {
+		return resposta.getStatusCodeValue();
+	}
+
+}
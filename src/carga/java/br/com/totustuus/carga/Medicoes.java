@@ -0,0 +1,116 @@
+package br.com.totustuus.carga;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latências e códigos de status de cada endpoint durante um cenário do
+ * CargaTest.
+ * 
+ * As latências ficam em um histograma do HdrHistogram: ele guarda todas as
+ * medições com precisão de 3 dígitos ocupando memória fixa, então os
+ * percentis (p99, p99.9) são exatos, e não uma média de médias. O
+ * ConcurrentHistogram pode receber medições de várias threads ao mesmo tempo.
+ * 
+ * @author thiago.machado
+ *
+ */
+class Medicoes {
+
+	// Maior latência registrada: 1 minuto, em microssegundos
+	private static final long LATENCIA_MAXIMA = TimeUnit.MINUTES.toMicros(1);
+
+	private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+	private long inicio;
+	private long fim;
+
+	void iniciar() {
+		inicio = System.nanoTime();
+	}
+
+	void finalizar() {
+		fim = System.nanoTime();
+	}
+
+	/**
+	 * Executa a requisição e registra a latência e o status no endpoint.
+	 * 
+	 * @param endpoint  nome do endpoint no relatório (ex.: "GET /topicos/{id}")
+	 * @param requisicao executa a requisição e devolve o código de status
+	 * @return o código de status
+	 */
+	int medir(String endpoint, Supplier<Integer> requisicao) {
+		long antes = System.nanoTime();
+		int status;
+		try {
+			status = requisicao.get();
+		} catch (RuntimeException ex) {
+			status = -1; // Falha de conexão, timeout, etc.
+		}
+		long latencia = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - antes);
+
+		Endpoint medicao = endpoints.computeIfAbsent(endpoint, (nome) -> new Endpoint());
+		medicao.latencias.recordValue(Math.min(latencia, LATENCIA_MAXIMA));
+		medicao.status.computeIfAbsent(status, (codigo) -> new LongAdder()).increment();
+		return status;
+	}
+
+	Map<String, Endpoint> getEndpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * Resumo de cada endpoint, no formato gravado no relatório.
+	 */
+	Map<String, Object> resumo() {
+		double segundos = (fim - inicio) / 1_000_000_000.0;
+		Map<String, Object> resumo = new TreeMap<>();
+
+		for (Map.Entry<String, Endpoint> entrada : endpoints.entrySet()) {
+			Histogram latencias = entrada.getValue().latencias;
+
+			Map<String, Object> latenciaMs = new TreeMap<>();
+			latenciaMs.put("p50", ms(latencias.getValueAtPercentile(50)));
+			latenciaMs.put("p90", ms(latencias.getValueAtPercentile(90)));
+			latenciaMs.put("p99", ms(latencias.getValueAtPercentile(99)));
+			latenciaMs.put("p999", ms(latencias.getValueAtPercentile(99.9)));
+			latenciaMs.put("max", ms(latencias.getMaxValue()));
+
+			Map<String, Long> status = new TreeMap<>();
+			entrada.getValue().status.forEach((codigo, total) -> status.put(String.valueOf(codigo), total.sum()));
+
+			Map<String, Object> endpoint = new TreeMap<>();
+			endpoint.put("requisicoes", latencias.getTotalCount());
+			endpoint.put("vazaoPorSegundo", Math.round(latencias.getTotalCount() / segundos * 10) / 10.0);
+			endpoint.put("latenciaMs", latenciaMs);
+			endpoint.put("status", status);
+
+			resumo.put(entrada.getKey(), endpoint);
+		}
+
+		return resumo;
+	}
+
+	private static double ms(long micros) {
+		return micros / 1000.0;
+	}
+
+	static class Endpoint {
+
+		private final Histogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA, 3);
+		private final ConcurrentMap<Integer, LongAdder> status = new ConcurrentHashMap<>();
+
+		Map<Integer, LongAdder> getStatus() {
+			return status;
+		}
+	}
+
+}
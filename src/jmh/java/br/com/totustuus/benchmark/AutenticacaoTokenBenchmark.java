@@ -0,0 +1,94 @@
+package br.com.totustuus.benchmark;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import br.com.totustuus.security.AutenticacaoCache;
+import br.com.totustuus.security.TokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Custo da autenticação via token em cada requisição.
+ * 
+ * <ul>
+ * <li>antes: como o AutenticacaoViaTokenFilter fazia, verificando o token duas
+ * vezes (isTokenValido e getUsuarioID), cada uma com um Jwts.parser() novo
+ * montado à partir do segredo em texto;</li>
+ * <li>semCache: uma única verificação com a chave e o parser já montados
+ * (TokenService.getClaims);</li>
+ * <li>comCache: o token já está no AutenticacaoCache, que é o caso de todas as
+ * requisições depois da primeira.</li>
+ * </ul>
+ * 
+ * Executar com: mvn -P benchmarks test-compile exec:exec -Dbenchmark=AutenticacaoToken
+ * 
+ * @author thiago.machado
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutenticacaoTokenBenchmark {
+
+	private static final String SEGREDO = "rm'!@N=Ke!~p8VTA2ZRK~nMDQX5Uvm!m'D&]{@Vr?G;2?XhbC:Qa#9#eMLN\\}x3?JR3.2zr~v)gYF^8";
+
+	private TokenService tokenService;
+	private AutenticacaoCache autenticacaoCache;
+	private String token;
+
+	@Setup
+	public void preparar() {
+		tokenService = new TokenService("86400000", SEGREDO, new SimpleMeterRegistry());
+		autenticacaoCache = new AutenticacaoCache(tokenService, 10000);
+
+		// Mesmo formato do token gerado pelo TokenService, assinado com o segredo em texto (como antes)
+		token = Jwts.builder().setIssuer("API de fórum").setSubject("1").setIssuedAt(new Date())
+				.setExpiration(new Date(System.currentTimeMillis() + 86400000)).claim("nome", "Aluno")
+				.claim("perfis", Collections.singletonList("ROLE_ALUNO")).signWith(SignatureAlgorithm.HS256, SEGREDO)
+				.compact();
+
+		autenticacaoCache.obter(token, this::criarAutenticacao); // Primeira requisição
+	}
+
+	@Benchmark
+	public Long antes() {
+		Jwts.parser().setSigningKey(SEGREDO).parseClaimsJws(token);
+		Claims claims = Jwts.parser().setSigningKey(SEGREDO).parseClaimsJws(token).getBody();
+		return Long.valueOf(claims.getSubject());
+	}
+
+	@Benchmark
+	public Authentication semCache() {
+		return criarAutenticacao(tokenService.getClaims(token));
+	}
+
+	@Benchmark
+	public Authentication comCache() {
+		return autenticacaoCache.obter(token, this::criarAutenticacao);
+	}
+
+	private Authentication criarAutenticacao(Claims claims) {
+		return new UsernamePasswordAuthenticationToken(claims.getSubject(), null, Collections.emptyList());
+	}
+
+}
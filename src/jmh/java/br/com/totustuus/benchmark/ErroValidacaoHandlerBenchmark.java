@@ -0,0 +1,81 @@
+package br.com.totustuus.benchmark;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.core.MethodParameter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import br.com.totustuus.config.validation.ErroValidacaoHandler;
+import br.com.totustuus.model.dto.ErroRequestDTO;
+import br.com.totustuus.model.dto.TopicoRequestDTO;
+
+/**
+ * Custo de montar a resposta 400 de um formulário inválido
+ * (ErroValidacaoHandler.handle) com 3 campos com erro.
+ * 
+ * Uma das mensagens é encontrada no MessageSource e as outras usam a mensagem
+ * padrão do Bean Validation, como acontece na aplicação.
+ * 
+ * Executar com: mvn -P benchmarks test-compile exec:exec -Dbenchmark=ErroValidacaoHandler
+ * 
+ * @author thiago.machado
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErroValidacaoHandlerBenchmark {
+
+	private ErroValidacaoHandler handler;
+	private MethodArgumentNotValidException exception;
+
+	@Setup
+	public void preparar() throws NoSuchMethodException {
+		StaticMessageSource messageSource = new StaticMessageSource();
+		messageSource.addMessage("NotEmpty.topicoRequestDTO.titulo", Locale.getDefault(), "título obrigatório");
+
+		handler = new ErroValidacaoHandler();
+		ReflectionTestUtils.setField(handler, "messageSource", messageSource); // @Autowired
+
+		BeanPropertyBindingResult resultado = new BeanPropertyBindingResult(new TopicoRequestDTO(),
+				"topicoRequestDTO");
+		resultado.addError(erro(resultado, "titulo", "NotEmpty", "must not be empty"));
+		resultado.addError(erro(resultado, "mensagem", "Length", "length must be between 15 and 255"));
+		resultado.addError(erro(resultado, "cursoNome", "CursoExistente", "curso não encontrado"));
+
+		MethodParameter parametro = new MethodParameter(
+				ErroValidacaoHandler.class.getMethod("handle", MethodArgumentNotValidException.class), 0);
+		exception = new MethodArgumentNotValidException(parametro, resultado);
+	}
+
+	@Benchmark
+	public List<ErroRequestDTO> handle() {
+		return handler.handle(exception);
+	}
+
+	private static FieldError erro(BeanPropertyBindingResult resultado, String campo, String codigo,
+			String mensagem) {
+		return new FieldError(resultado.getObjectName(), campo, null, false,
+				resultado.resolveMessageCodes(codigo, campo), null, mensagem);
+	}
+
+}
@@ -0,0 +1,80 @@
+package br.com.totustuus.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.totustuus.model.Perfil;
+import br.com.totustuus.model.Usuario;
+import br.com.totustuus.security.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Custo das operações do TokenService: gerar o token no login, e verificar o
+ * token / ler o id do usuário.
+ * 
+ * Executar com: mvn -P benchmarks test-compile exec:exec -Dbenchmark=TokenService
+ * 
+ * @author thiago.machado
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+	private static final String SEGREDO = "rm'!@N=Ke!~p8VTA2ZRK~nMDQX5Uvm!m'D&]{@Vr?G;2?XhbC:Qa#9#eMLN\\}x3?JR3.2zr~v)gYF^8";
+
+	private TokenService tokenService;
+	private Authentication autenticacao;
+	private String token;
+
+	@Setup
+	public void preparar() {
+		tokenService = new TokenService("900000", SEGREDO, new SimpleMeterRegistry());
+
+		Perfil perfil = new Perfil();
+		perfil.setId(1L);
+		perfil.setNome("ROLE_ALUNO");
+
+		Usuario usuario = new Usuario();
+		usuario.setId(1L);
+		usuario.setNome("Aluno");
+		ReflectionTestUtils.setField(usuario, "perfis", Collections.singletonList(perfil)); // Não há setter
+
+		autenticacao = new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities());
+		token = tokenService.gerarToken(autenticacao);
+	}
+
+	@Benchmark
+	public String gerarToken() {
+		return tokenService.gerarToken(autenticacao);
+	}
+
+	@Benchmark
+	public boolean isTokenValido() {
+		return tokenService.isTokenValido(token);
+	}
+
+	@Benchmark
+	public Long getUsuarioID() {
+		return tokenService.getUsuarioID(token);
+	}
+
+}
@@ -0,0 +1,123 @@
+package br.com.totustuus.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.totustuus.model.Curso;
+import br.com.totustuus.model.Resposta;
+import br.com.totustuus.model.Topico;
+import br.com.totustuus.model.Usuario;
+import br.com.totustuus.model.dto.TopicoDetalheResponseDTO;
+import br.com.totustuus.model.dto.TopicoResponseDTO;
+
+/**
+ * Custo de montar a resposta dos GETs de /topicos, sem banco e sem HTTP:
+ * 
+ * <ul>
+ * <li>converterPagina: TopicoResponseDTO.converter() de uma página com 10
+ * tópicos;</li>
+ * <li>detalhe: new TopicoDetalheResponseDTO() de um tópico com 5
+ * respostas;</li>
+ * <li>serializarPagina: o JSON de um Page&lt;TopicoResponseDTO&gt;, com um
+ * ObjectMapper configurado como o do Spring Boot.</li>
+ * </ul>
+ * 
+ * Executar com: mvn -P benchmarks test-compile exec:exec -Dbenchmark=TopicoConversao
+ * 
+ * @author thiago.machado
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicoConversaoBenchmark {
+
+	private Page<Topico> pagina;
+	private Page<TopicoResponseDTO> paginaConvertida;
+	private Topico topicoComRespostas;
+	private ObjectMapper objectMapper;
+
+	@Setup
+	public void preparar() {
+		Usuario autor = new Usuario();
+		autor.setId(1L);
+		autor.setNome("Aluno");
+
+		Curso curso = new Curso();
+		curso.setId(1L);
+		curso.setNome("Spring Boot");
+
+		List<Topico> topicos = new ArrayList<>();
+		for (long id = 1; id <= 10; id++)
+			topicos.add(topico(id, autor, curso));
+
+		pagina = new PageImpl<>(topicos, PageRequest.of(0, 10), 1000);
+		paginaConvertida = TopicoResponseDTO.converter(pagina);
+
+		topicoComRespostas = topico(1L, autor, curso);
+		for (long id = 1; id <= 5; id++) {
+			Resposta resposta = new Resposta();
+			resposta.setId(id);
+			resposta.setMensagem("Resposta número " + id + " para o tópico");
+			resposta.setDataCriacao(LocalDateTime.of(2019, 5, 6, 10, 0));
+			resposta.setAutor(autor);
+			resposta.setTopico(topicoComRespostas);
+			topicoComRespostas.getRespostas().add(resposta);
+		}
+
+		// Mesma configuração de datas do ObjectMapper criado pelo Spring Boot
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+	}
+
+	@Benchmark
+	public Page<TopicoResponseDTO> converterPagina() {
+		return TopicoResponseDTO.converter(pagina);
+	}
+
+	@Benchmark
+	public TopicoDetalheResponseDTO detalhe() {
+		return new TopicoDetalheResponseDTO(topicoComRespostas);
+	}
+
+	@Benchmark
+	public byte[] serializarPagina() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(paginaConvertida);
+	}
+
+	private static Topico topico(Long id, Usuario autor, Curso curso) {
+		Topico topico = new Topico();
+		topico.setId(id);
+		topico.setTitulo("Dúvida " + id);
+		topico.setMensagem("Erro ao criar o projeto com o Spring Boot");
+		topico.setDataCriacao(LocalDateTime.of(2019, 5, 5, 18, 0));
+		topico.setAutor(autor);
+		topico.setCurso(curso);
+		return topico;
+	}
+
+}
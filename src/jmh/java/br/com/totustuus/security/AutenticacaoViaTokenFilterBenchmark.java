@@ -0,0 +1,141 @@
+package br.com.totustuus.security;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.totustuus.model.Perfil;
+import br.com.totustuus.model.Usuario;
+import br.com.totustuus.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Custo do AutenticacaoViaTokenFilter em uma requisição, com o
+ * UsuarioRepository simulado (Mockito), ou seja, sem o tempo do banco:
+ * 
+ * <ul>
+ * <li>tokenEmCache: caso comum, o token já foi verificado em uma requisição
+ * anterior (AutenticacaoCache);</li>
+ * <li>rotaSensivel: o token é verificado e o usuário é buscado no repositório
+ * a cada requisição;</li>
+ * <li>semToken: requisição pública, sem o cabeçalho Authorization.</li>
+ * </ul>
+ * 
+ * Esse benchmark fica no mesmo pacote do filtro para poder chamar o
+ * doFilterInternal(), que é protected, diretamente.
+ * 
+ * Executar com: mvn -P benchmarks test-compile exec:exec -Dbenchmark=AutenticacaoViaTokenFilter
+ * 
+ * @author thiago.machado
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutenticacaoViaTokenFilterBenchmark {
+
+	private static final String SEGREDO = "rm'!@N=Ke!~p8VTA2ZRK~nMDQX5Uvm!m'D&]{@Vr?G;2?XhbC:Qa#9#eMLN\\}x3?JR3.2zr~v)gYF^8";
+
+	private AutenticacaoViaTokenFilter filtro;
+	private MockHttpServletRequest requisicao;
+	private MockHttpServletRequest requisicaoSensivel;
+	private MockHttpServletRequest requisicaoSemToken;
+	private MockHttpServletResponse resposta;
+	private FilterChain chain;
+
+	@Setup
+	public void preparar() throws ServletException, IOException {
+		TokenService tokenService = new TokenService("900000", SEGREDO, new SimpleMeterRegistry());
+
+		Perfil perfil = new Perfil();
+		perfil.setId(1L);
+		perfil.setNome("ROLE_ALUNO");
+
+		Usuario usuario = new Usuario();
+		usuario.setId(1L);
+		usuario.setNome("Aluno");
+		ReflectionTestUtils.setField(usuario, "perfis", Collections.singletonList(perfil)); // Não há setter
+
+		// stubOnly: o Mockito não guarda as chamadas, senão a memória cresceria durante a medição
+		UsuarioRepository usuarioRepository = Mockito.mock(UsuarioRepository.class,
+				Mockito.withSettings().stubOnly());
+		Mockito.when(usuarioRepository.findById(1L)).thenReturn(Optional.of(usuario));
+
+		filtro = new AutenticacaoViaTokenFilter(tokenService, usuarioRepository,
+				new AutenticacaoCache(tokenService, 10000), "/topicos/lote/**");
+
+		String token = tokenService
+				.gerarToken(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+
+		requisicao = requisicao("/topicos", token);
+		requisicaoSensivel = requisicao("/topicos/lote/status", token);
+		requisicaoSemToken = requisicao("/topicos", null);
+		resposta = new MockHttpServletResponse();
+		chain = (request, response) -> {
+		};
+
+		tokenEmCache(); // Primeira requisição, que coloca o token no cache
+	}
+
+	@Benchmark
+	public void tokenEmCache() throws ServletException, IOException {
+		filtrar(requisicao);
+	}
+
+	@Benchmark
+	public void rotaSensivel() throws ServletException, IOException {
+		filtrar(requisicaoSensivel);
+	}
+
+	@Benchmark
+	public void semToken() throws ServletException, IOException {
+		filtrar(requisicaoSemToken);
+	}
+
+	/*
+	 * O SecurityContext é limpo dentro do próprio benchmark, como o Spring
+	 * Security faz ao fim de cada requisição. Um @TearDown(Level.Invocation)
+	 * faria o JMH medir o tempo de cada chamada individualmente, e para chamadas
+	 * tão curtas o custo da própria medição distorce o resultado.
+	 */
+	private void filtrar(MockHttpServletRequest requisicao) throws ServletException, IOException {
+		try {
+			filtro.doFilterInternal(requisicao, resposta, chain);
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	private static MockHttpServletRequest requisicao(String uri, String token) {
+		MockHttpServletRequest requisicao = new MockHttpServletRequest("GET", uri);
+		requisicao.setServletPath(uri);
+		if (token != null)
+			requisicao.addHeader("Authorization", "Bearer " + token);
+		return requisicao;
+	}
+
+}
@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
@@ -17,6 +18,10 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
  * para entender mais sobre a anotação @EnableSpringDataWebSupport.
  * 
  * @EnableCaching habilita o uso de cache na aplicação. Precisa inserir a dependência no pom.
+ * O provedor de cache (Caffeine) e os limites de cada cache estão na classe CacheConfigurations.
+ * 
+ * @EnableScheduling habilita os métodos anotados com @Scheduled, executados periodicamente
+ * (ex.: a limpeza dos refresh tokens vencidos no RefreshTokenService).
  * 
  * @EnableSwagger2 habilita o Swagger no projeto. Precisa inserir as dependências no pom.
  * Além disso, foi preciso criar a classe SwaggerConfigurations e habilitar o acesso ao swagger no 
@@ -28,6 +33,7 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 @SpringBootApplication
 @EnableSpringDataWebSupport
 @EnableCaching
+@EnableScheduling
 @EnableSwagger2
 public class SpringbootRestApplication {
 
@@ -0,0 +1,67 @@
+package br.com.totustuus.config.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuração do provedor de cache da aplicação.
+ * 
+ * Sem essa classe, o @EnableCaching usa o cache padrão do Spring
+ * (ConcurrentMapCache), que guarda tudo em um mapa sem limite. Como o cache
+ * "listaDeTopicosPorPagina" tem uma entrada para cada combinação de cursoNome,
+ * página, tamanho e ordenação, alguém variando esses parâmetros consegue
+ * aumentar o uso de memória indefinidamente.
+ * 
+ * Aqui cada cache é um cache do Caffeine, com limite de entradas e tempo de
+ * expiração próprios (ver CacheEspecificacoes). Quando o limite é atingido, o
+ * Caffeine remove as entradas menos úteis, usando o algoritmo W-TinyLFU, que
+ * leva em conta a frequência e a recência dos acessos.
+ * 
+ * O recordStats() liga as estatísticas de acertos, falhas e remoções. O
+ * Actuator publica essas estatísticas automaticamente em /actuator/metrics
+ * (cache.gets, cache.puts, cache.evictions e cache.size). Também publicamos a
+ * taxa de acerto de cada cache em forum.cache.taxa.acerto.
+ * 
+ * Cada cache é um CacheVersionado: uma carga feita antes de uma invalidação
+ * não volta para o cache depois dela.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Configuration
+public class CacheConfigurations {
+
+	@Bean
+	public CacheManager cacheManager(CacheEspecificacoes cacheEspecificacoes, MeterRegistry meterRegistry) {
+
+		List<Cache> caches = new ArrayList<>();
+
+		for (Map.Entry<String, String> especificacao : cacheEspecificacoes.getEspecificacoes().entrySet()) {
+			com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = Caffeine.from(especificacao.getValue())
+					.recordStats().build();
+
+			Gauge.builder("forum.cache.taxa.acerto", cache, (c) -> c.stats().hitRate())
+					.tag("cache", especificacao.getKey()).description("Percentual de leituras atendidas pelo cache")
+					.register(meterRegistry);
+
+			caches.add(new CacheVersionado(especificacao.getKey(), cache));
+		}
+
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(caches);
+		return cacheManager;
+	}
+
+}
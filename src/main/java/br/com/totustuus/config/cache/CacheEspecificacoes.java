@@ -0,0 +1,35 @@
+package br.com.totustuus.config.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Especificação de cada cache da aplicação, lida do application.properties.
+ * 
+ * @ConfigurationProperties(prefix = "forum.cache") faz o Spring preencher o
+ * mapa com todas as chaves "forum.cache.especificacoes.{nomeDoCache}". O valor
+ * segue o formato de especificação do Caffeine. Ex.:
+ * 
+ * forum.cache.especificacoes.listaDeTopicosPorPagina=maximumSize=500,expireAfterWrite=10m
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+@ConfigurationProperties(prefix = "forum.cache")
+public class CacheEspecificacoes {
+
+	private Map<String, String> especificacoes = new HashMap<>();
+
+	public Map<String, String> getEspecificacoes() {
+		return especificacoes;
+	}
+
+	public void setEspecificacoes(Map<String, String> especificacoes) {
+		this.especificacoes = especificacoes;
+	}
+
+}
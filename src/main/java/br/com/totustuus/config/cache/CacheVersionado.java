@@ -0,0 +1,128 @@
+package br.com.totustuus.config.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ * Cache do Caffeine que não deixa uma carga antiga voltar para o cache depois
+ * de uma invalidação.
+ * 
+ * Com o @Cacheable, o Spring procura a chave no cache (get) e, se não
+ * encontrar, executa o método e grava o resultado (put). Se o tópico for
+ * alterado no meio disso, a sequência pode ser:
+ * 
+ * <ol>
+ * <li>a requisição A não encontra a chave e lê o tópico do banco;</li>
+ * <li>a requisição B altera o tópico, faz o commit e remove a chave
+ * (evict);</li>
+ * <li>A grava no cache o que leu no passo 1, que já está desatualizado, e ele
+ * fica lá até expirar.</li>
+ * </ol>
+ * 
+ * Por isso cada invalidação (evict, clear, removerSe) incrementa uma versão do
+ * cache antes de remover as entradas. No get que não encontra a chave,
+ * guardamos (na thread) a versão daquele momento. No put, o valor é gravado e,
+ * se a versão mudou desde o get, é removido em seguida: ele pode ter sido lido
+ * antes da alteração. Como o put grava antes de conferir e a invalidação
+ * incrementa antes de remover, em qualquer ordem o valor antigo não fica no
+ * cache. O custo é apenas perder, de vez em quando, uma carga que estava
+ * correta.
+ * 
+ * Continua sendo um CaffeineCache, então as métricas do cache publicadas pelo
+ * Actuator não mudam.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class CacheVersionado extends CaffeineCache {
+
+	private final AtomicLong versao = new AtomicLong();
+
+	// Chave e versão do último get sem resultado feito pela thread
+	private final ThreadLocal<Falha> ultimaFalha = new ThreadLocal<>();
+
+	public CacheVersionado(String name, Cache<Object, Object> cache) {
+		super(name, cache);
+	}
+
+	public long getVersao() {
+		return versao.get();
+	}
+
+	@Override
+	public ValueWrapper get(Object key) {
+		ValueWrapper valor = super.get(key);
+		if (valor == null)
+			ultimaFalha.set(new Falha(key, versao.get()));
+		return valor;
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		Falha falha = ultimaFalha.get();
+		ultimaFalha.remove();
+
+		super.put(key, value);
+
+		if (falha != null && falha.chave.equals(key) && falha.versao != versao.get())
+			super.evict(key);
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value) {
+		Falha falha = ultimaFalha.get();
+		ultimaFalha.remove();
+
+		ValueWrapper existente = super.putIfAbsent(key, value);
+
+		if (existente == null && falha != null && falha.chave.equals(key) && falha.versao != versao.get())
+			super.evict(key);
+
+		return existente;
+	}
+
+	@Override
+	public void evict(Object key) {
+		versao.incrementAndGet();
+		super.evict(key);
+	}
+
+	@Override
+	public void clear() {
+		versao.incrementAndGet();
+		super.clear();
+	}
+
+	/**
+	 * Remove as entradas (chave, valor) que atendem à condição.
+	 * 
+	 * @return quantidade de entradas removidas
+	 */
+	public int removerSe(BiPredicate<Object, Object> condicao) {
+		versao.incrementAndGet();
+
+		int removidas = 0;
+		for (Object chave : getNativeCache().asMap().keySet()) {
+			Object valor = getNativeCache().getIfPresent(chave);
+			if (valor != null && condicao.test(chave, valor) && getNativeCache().asMap().remove(chave, valor))
+				removidas++;
+		}
+		return removidas;
+	}
+
+	private static class Falha {
+
+		private final Object chave;
+		private final long versao;
+
+		Falha(Object chave, long versao) {
+			this.chave = chave;
+			this.versao = versao;
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+package br.com.totustuus.config.cache;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Garante que, para uma mesma chave, apenas uma carga seja feita por vez
+ * (conhecido como "single-flight" ou "request coalescing").
+ * 
+ * Quando uma entrada sai do cache, todas as requisições que chegam antes dela
+ * ser preenchida novamente iriam ao banco executar exatamente a mesma consulta.
+ * Com essa classe, a primeira requisição (a "líder") executa a carga e as
+ * demais apenas aguardam e recebem o mesmo resultado.
+ * 
+ * Cada grupo (ex.: "listaDeTopicosPorPagina") pode ter seu próprio tempo
+ * máximo de espera, configurado em forum.carregamento-unico.timeout.{grupo}
+ * (milissegundos). Se a carga da líder demorar mais do que isso, quem está
+ * aguardando desiste de esperar e faz a própria carga.
+ * 
+ * As quantidades de cargas executadas, aproveitadas (coalescidas) e que
+ * estouraram o tempo são publicadas na métrica forum.carregamento.unico.
+ * 
+ * Quando o grupo é também o nome de um CacheVersionado, a versão atual do
+ * cache faz parte da chave: uma requisição que chega depois de uma invalidação
+ * não aguarda uma carga iniciada antes dela, que pode trazer dados antigos, e
+ * faz uma carga nova.
+ * 
+ * IMPORTANTE: o resultado é compartilhado entre threads, então a carga deve
+ * devolver DTOs e nunca entidades gerenciadas pela JPA.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class CarregamentoUnico {
+
+	private static final long TIMEOUT_PADRAO = 5000;
+
+	private final ConcurrentHashMap<Chave, CompletableFuture<Object>> emAndamento = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Long> timeouts = new ConcurrentHashMap<>();
+
+	private final Environment environment;
+	private final MeterRegistry meterRegistry;
+	private final CacheManager cacheManager;
+
+	public CarregamentoUnico(Environment environment, MeterRegistry meterRegistry, CacheManager cacheManager) {
+		this.environment = environment;
+		this.meterRegistry = meterRegistry;
+		this.cacheManager = cacheManager;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T executar(String grupo, Object chave, Supplier<T> carga) {
+
+		Chave chaveDoGrupo = new Chave(grupo, chave, versao(grupo));
+		CompletableFuture<Object> nova = new CompletableFuture<>();
+		CompletableFuture<Object> existente = emAndamento.putIfAbsent(chaveDoGrupo, nova);
+
+		if (existente == null) {
+			// Não há carga em andamento: essa thread é a líder
+			contar(grupo, "carregado");
+			try {
+				T valor = carga.get();
+				nova.complete(valor);
+				return valor;
+			} catch (RuntimeException | Error ex) {
+				nova.completeExceptionally(ex); // Quem está aguardando recebe a mesma exceção
+				throw ex;
+			} finally {
+				emAndamento.remove(chaveDoGrupo, nova);
+			}
+		}
+
+		contar(grupo, "coalescido");
+		try {
+			return (T) existente.get(timeout(grupo), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException ex) {
+			contar(grupo, "timeout");
+			return carga.get();
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			if (ex.getCause() instanceof Error)
+				throw (Error) ex.getCause();
+			throw new IllegalStateException(ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrompido aguardando a carga de " + chaveDoGrupo, ex);
+		}
+	}
+
+	private long versao(String grupo) {
+		Cache cache = cacheManager.getCache(grupo);
+		return cache instanceof CacheVersionado ? ((CacheVersionado) cache).getVersao() : 0;
+	}
+
+	private long timeout(String grupo) {
+		return timeouts.computeIfAbsent(grupo, (g) -> environment
+				.getProperty("forum.carregamento-unico.timeout." + g, Long.class, TIMEOUT_PADRAO));
+	}
+
+	private void contar(String grupo, String resultado) {
+		meterRegistry.counter("forum.carregamento.unico", "grupo", grupo, "resultado", resultado).increment();
+	}
+
+	private static class Chave {
+
+		private final String grupo;
+		private final Object chave;
+		private final long versao;
+
+		Chave(String grupo, Object chave, long versao) {
+			this.grupo = grupo;
+			this.chave = chave;
+			this.versao = versao;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(grupo, chave, versao);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Chave other = (Chave) obj;
+			return grupo.equals(other.grupo) && Objects.equals(chave, other.chave) && versao == other.versao;
+		}
+
+		@Override
+		public String toString() {
+			return grupo + ":" + chave;
+		}
+
+	}
+
+}
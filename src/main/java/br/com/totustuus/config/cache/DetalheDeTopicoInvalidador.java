@@ -0,0 +1,55 @@
+package br.com.totustuus.config.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+
+/**
+ * Remove do cache "detalheDeTopico" apenas os tópicos alterados.
+ * 
+ * O detalhe é guardado por id (ver detalhar() no TopicoController), então ao
+ * receber um TopicoAlteradoEvent basta remover as entradas dos ids do evento.
+ * Os outros tópicos continuam em cache, e o cache da listagem é tratado à parte
+ * pelo ListaDeTopicosInvalidador. Um evento em lote não traz os ids, então o
+ * cache inteiro é descartado.
+ * 
+ * Como o detalhe também traz as respostas, quem criar, alterar ou remover uma
+ * resposta deve publicar um TopicoAlteradoEvent do tipo ATUALIZADO para o
+ * tópico da resposta.
+ * 
+ * Só remover a entrada não bastaria: uma leitura que começou antes do commit
+ * poderia gravar o detalhe antigo de volta logo depois. O cache é um
+ * CacheVersionado, que descarta essa gravação (ver DetalheDeTopicoCacheTest).
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class DetalheDeTopicoInvalidador {
+
+	public static final String CACHE = "detalheDeTopico";
+
+	private final Cache cache;
+
+	public DetalheDeTopicoInvalidador(CacheManager cacheManager) {
+		this.cache = cacheManager.getCache(CACHE);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	@Order(Ordered.HIGHEST_PRECEDENCE) // Antes do TopicoVersaoService
+	public void aoAlterarTopico(TopicoAlteradoEvent evento) {
+		if (evento.isEmLote()) {
+			cache.clear();
+			return;
+		}
+
+		for (Long id : evento.getIds())
+			cache.evict(id);
+	}
+
+}
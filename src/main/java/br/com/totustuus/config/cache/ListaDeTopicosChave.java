@@ -0,0 +1,61 @@
+package br.com.totustuus.config.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Chave das entradas do cache "listaDeTopicosPorPagina".
+ * 
+ * A chave padrão do Spring (SimpleKey) não permite consultar os parâmetros que
+ * a formaram. Com essa classe o ListaDeTopicosInvalidador consegue saber de
+ * qual curso e de qual página é cada entrada, e remover apenas as que foram
+ * afetadas por uma alteração.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class ListaDeTopicosChave implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String cursoNome;
+	private final Pageable pageable;
+
+	public ListaDeTopicosChave(String cursoNome, Pageable pageable) {
+		this.cursoNome = cursoNome;
+		this.pageable = pageable;
+	}
+
+	public String getCursoNome() {
+		return cursoNome;
+	}
+
+	public Pageable getPageable() {
+		return pageable;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(cursoNome, pageable);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ListaDeTopicosChave other = (ListaDeTopicosChave) obj;
+		return Objects.equals(cursoNome, other.cursoNome) && Objects.equals(pageable, other.pageable);
+	}
+
+	@Override
+	public String toString() {
+		return "ListaDeTopicosChave [cursoNome=" + cursoNome + ", pageable=" + pageable + "]";
+	}
+
+}
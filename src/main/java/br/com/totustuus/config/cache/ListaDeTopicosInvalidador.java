@@ -0,0 +1,94 @@
+package br.com.totustuus.config.cache;
+
+import java.util.Set;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.model.dto.TopicoResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remove do cache "listaDeTopicosPorPagina" somente as páginas que podem ter
+ * sido afetadas por uma alteração de tópico.
+ * 
+ * Antes, cadastrar, atualizar e remover usavam @CacheEvict(allEntries = true):
+ * qualquer alteração apagava o cache inteiro e, com escritas frequentes, quase
+ * nenhuma leitura encontrava o cache preenchido.
+ * 
+ * Agora, ao receber um TopicoAlteradoEvent (após o commit), removemos:
+ * <ul>
+ * <li>as páginas filtradas por um dos cursos alterados;</li>
+ * <li>todas as páginas sem filtro de curso, quando tópicos foram criados ou
+ * removidos: dependendo da ordenação o tópico novo pode estar em qualquer
+ * página (com sort=id,asc, na última), e toda página traz o total de
+ * registros, que mudou;</li>
+ * <li>qualquer página que contenha um dos tópicos alterados.</li>
+ * </ul>
+ * 
+ * Um evento em lote não traz os ids, então todas as páginas sem filtro de curso
+ * são removidas também na alteração de status.
+ * 
+ * Uma atualização continua removendo apenas as páginas do curso e as que
+ * contêm o tópico, que é o caso mais comum.
+ * 
+ * As entradas são removidas pelo CacheVersionado, então uma página que estava
+ * sendo carregada durante a alteração também não volta para o cache.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class ListaDeTopicosInvalidador {
+
+	public static final String CACHE = "listaDeTopicosPorPagina";
+
+	private final CacheVersionado cache;
+	private final Counter entradasRemovidas;
+
+	public ListaDeTopicosInvalidador(CacheManager cacheManager, MeterRegistry meterRegistry) {
+		this.cache = (CacheVersionado) cacheManager.getCache(CACHE);
+		this.entradasRemovidas = Counter.builder("forum.cache.invalidacoes").tag("cache", CACHE)
+				.description("Entradas removidas pela invalidação seletiva").register(meterRegistry);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	@Order(Ordered.HIGHEST_PRECEDENCE) // Antes do TopicoVersaoService
+	public void aoAlterarTopico(TopicoAlteradoEvent evento) {
+		Set<Long> ids = evento.getIds();
+		Set<String> cursos = evento.getCursos();
+		boolean semFiltroAfetadas = evento.isEmLote() || evento.getTipo() != TopicoAlteradoEvent.Tipo.ATUALIZADO;
+
+		entradasRemovidas.increment(cache.removerSe((chave, valor) -> afetada(chave, valor, ids, cursos, semFiltroAfetadas)));
+	}
+
+	private boolean afetada(Object chave, Object valor, Set<Long> ids, Set<String> cursos, boolean semFiltroAfetadas) {
+
+		if (!(chave instanceof ListaDeTopicosChave))
+			return true; // Chave desconhecida: não temos como saber, então removemos
+
+		String cursoNome = ((ListaDeTopicosChave) chave).getCursoNome();
+
+		if (cursoNome != null && cursos.contains(cursoNome))
+			return true;
+
+		if (cursoNome == null && semFiltroAfetadas)
+			return true;
+
+		if (valor instanceof Page) {
+			for (Object topico : ((Page<?>) valor).getContent()) {
+				if (topico instanceof TopicoResponseDTO && ids.contains(((TopicoResponseDTO) topico).getId()))
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+}
@@ -0,0 +1,25 @@
+package br.com.totustuus.config.cache;
+
+import java.lang.reflect.Method;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gera a chave do cache "listaDeTopicosPorPagina" à partir dos parâmetros
+ * (cursoNome, pageable) do método listaComPaginacaoNoParametro() do
+ * TopicoController.
+ * 
+ * Para usar: @Cacheable(value = "listaDeTopicosPorPagina", keyGenerator =
+ * "listaDeTopicosKeyGenerator")
+ */
+@Component
+public class ListaDeTopicosKeyGenerator implements KeyGenerator {
+
+	@Override
+	public Object generate(Object target, Method method, Object... params) {
+		return new ListaDeTopicosChave((String) params[0], (Pageable) params[1]);
+	}
+
+}
@@ -0,0 +1,89 @@
+package br.com.totustuus.config.consultas;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Comandos SQL executados durante uma requisição (ver ContadorDeConsultas).
+ * 
+ * Além do total, os comandos são agrupados pelo formato: o SQL sem os valores
+ * e com os espaços normalizados. Em um N+1 o mesmo formato aparece várias
+ * vezes (ex.: um SELECT de resposta para cada tópico), e é esse formato que o
+ * ContadorDeConsultasFilter mostra no log.
+ * 
+ * registrar() é chamado para cada comando, então faz apenas o mínimo: soma o
+ * total e conta o SQL como veio (até FORMATOS_MAXIMO SQLs diferentes). O
+ * formato só é calculado quando alguém pergunta pelo mais repetido, o que o
+ * filtro faz apenas nas requisições acima do limite.
+ * 
+ * Os métodos são sincronizados porque uma requisição pode contar comandos
+ * executados em outra thread (ver ContadorDeConsultas.contarEm()).
+ * 
+ * @author thiago.machado
+ *
+ */
+public class Consultas {
+
+	// Evita que uma requisição com milhares de comandos diferentes ocupe memória demais
+	private static final int FORMATOS_MAXIMO = 100;
+
+	private static final Pattern ESPACOS = Pattern.compile("\\s+");
+	private static final Pattern VALORES = Pattern.compile("'[^']*'|\\b\\d+\\b");
+
+	private final long inicio = System.nanoTime();
+	private int total;
+	private final Map<String, Integer> porSql = new HashMap<>();
+	private Map<String, Integer> porFormato; // Calculado à partir de porSql, quando necessário
+
+	synchronized void registrar(String sql) {
+		total++;
+
+		if (porSql.size() < FORMATOS_MAXIMO || porSql.containsKey(sql)) {
+			porSql.merge(sql, 1, Integer::sum);
+			porFormato = null;
+		}
+	}
+
+	public synchronized int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Tempo, em milissegundos, desde o início da contagem.
+	 */
+	public double getDuracao() {
+		return (System.nanoTime() - inicio) / 1_000_000.0;
+	}
+
+	/**
+	 * O formato de SQL executado mais vezes, ou null se nada foi executado.
+	 */
+	public synchronized String getMaisRepetida() {
+		Map.Entry<String, Integer> maisRepetida = null;
+		for (Map.Entry<String, Integer> formato : porFormato().entrySet()) {
+			if (maisRepetida == null || formato.getValue() > maisRepetida.getValue())
+				maisRepetida = formato;
+		}
+		return maisRepetida != null ? maisRepetida.getKey() : null;
+	}
+
+	public synchronized int getRepeticoes(String formato) {
+		return porFormato().getOrDefault(formato, 0);
+	}
+
+	private Map<String, Integer> porFormato() {
+		if (porFormato == null) {
+			porFormato = new HashMap<>();
+			for (Map.Entry<String, Integer> sql : porSql.entrySet())
+				porFormato.merge(formato(sql.getKey()), sql.getValue(), Integer::sum);
+		}
+		return porFormato;
+	}
+
+	private static String formato(String sql) {
+		String semValores = VALORES.matcher(sql).replaceAll("?");
+		return ESPACOS.matcher(semValores).replaceAll(" ").trim();
+	}
+
+}
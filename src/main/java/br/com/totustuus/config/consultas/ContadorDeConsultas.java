@@ -0,0 +1,106 @@
+package br.com.totustuus.config.consultas;
+
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Conta os comandos SQL executados pelo Hibernate na requisição atual.
+ * 
+ * O Hibernate chama o inspect() de um StatementInspector antes de preparar
+ * cada comando SQL. Aqui o comando não é alterado (é devolvido como veio),
+ * apenas contado nas Consultas da thread atual, que são iniciadas e
+ * finalizadas pelo ContadorDeConsultasFilter a cada requisição. Fora de uma
+ * requisição (ex.: carga inicial dos serviços) nada é contado.
+ * 
+ * Ele é registrado pelo nome da classe em application.properties
+ * (hibernate.session_factory.statement_inspector), por isso é o Hibernate, e
+ * não o Spring, que cria a instância, e as contagens ficam em um ThreadLocal
+ * estático.
+ * 
+ * Os comandos executados sem o Hibernate (JdbcTemplate) não são contados.
+ * Os executados em outra thread só são contados se ela usar contarEm() com as
+ * Consultas da requisição (ex.: AutenticacaoExecutor).
+ * 
+ * @author thiago.machado
+ *
+ */
+public class ContadorDeConsultas implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<Consultas> CONSULTAS = new ThreadLocal<>();
+
+	@Override
+	public String inspect(String sql) {
+		Consultas consultas = CONSULTAS.get();
+		if (consultas != null)
+			consultas.registrar(sql);
+		return sql;
+	}
+
+	/**
+	 * Começa a contar os comandos executados pela thread atual.
+	 */
+	public static Consultas iniciar() {
+		Consultas consultas = new Consultas();
+		CONSULTAS.set(consultas);
+		return consultas;
+	}
+
+	/**
+	 * Para de contar e devolve o que foi contado desde o iniciar().
+	 */
+	public static Consultas finalizar() {
+		Consultas consultas = CONSULTAS.get();
+		CONSULTAS.remove();
+		return consultas != null ? consultas : new Consultas();
+	}
+
+	/**
+	 * Consultas da thread atual, ou null se nada está sendo contado.
+	 */
+	public static Consultas atuais() {
+		return CONSULTAS.get();
+	}
+
+	/**
+	 * Executa o código contando os comandos nas Consultas informadas. Usado por
+	 * quem executa parte da requisição em outra thread, com as Consultas obtidas
+	 * por atuais() na thread da requisição.
+	 */
+	public static <T> T contarEm(Consultas consultas, Supplier<T> codigo) {
+		if (consultas == null)
+			return codigo.get();
+
+		Consultas anteriores = CONSULTAS.get();
+		CONSULTAS.set(consultas);
+		try {
+			return codigo.get();
+		} finally {
+			if (anteriores != null)
+				CONSULTAS.set(anteriores);
+			else
+				CONSULTAS.remove();
+		}
+	}
+
+	/**
+	 * Conta os comandos executados pelo código informado, na thread atual. Útil
+	 * nos testes que chamam services ou repositories diretamente.
+	 */
+	public static Consultas contar(Runnable codigo) {
+		Consultas anteriores = CONSULTAS.get();
+		Consultas consultas = iniciar();
+		try {
+			codigo.run();
+			return consultas;
+		} finally {
+			if (anteriores != null)
+				CONSULTAS.set(anteriores);
+			else
+				CONSULTAS.remove();
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package br.com.totustuus.config.consultas;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Conta os comandos SQL de cada requisição (ver ContadorDeConsultas).
+ * 
+ * <ul>
+ * <li>Com forum.consultas.cabecalhos=true (o padrão, desligado no profile
+ * "prod"), a resposta leva os cabeçalhos X-Query-Count, com a quantidade de
+ * comandos, e Server-Timing, que as ferramentas de desenvolvedor dos
+ * navegadores exibem junto com os tempos da requisição.</li>
+ * <li>Quando uma requisição executa mais comandos do que
+ * forum.consultas.limite-por-requisicao, é registrado um WARN com o endpoint e
+ * o SQL mais repetido, que normalmente é o N+1.</li>
+ * </ul>
+ * 
+ * Os cabeçalhos precisam ser adicionados antes do corpo começar a ser
+ * escrito, então a resposta é embrulhada e eles são adicionados quando o
+ * corpo é pedido (ou no fim, nas respostas sem corpo).
+ * 
+ * Por isso o X-Query-Count mostra os comandos executados até o corpo começar:
+ * o que roda enquanto o corpo é escrito (ex.: um relacionamento LAZY lido na
+ * serialização, ou as linhas de uma exportação em streaming) fica de fora. O
+ * total final aparece:
+ * <ul>
+ * <li>no WARN acima do limite, que é registrado depois da resposta inteira;</li>
+ * <li>nos trailers X-Query-Count e Server-Timing, enviados depois do corpo
+ * quando a resposta é em partes (chunked, em HTTP/1.1) ou em HTTP/2. Os
+ * navegadores mostram o Server-Timing do trailer; o curl precisa de
+ * --raw.</li>
+ * </ul>
+ * 
+ * O filtro fica antes do Spring Security, para que as consultas feitas na
+ * autenticação também sejam contadas.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ContadorDeConsultasFilter extends OncePerRequestFilter {
+
+	public static final String CABECALHO_QUANTIDADE = "X-Query-Count";
+	public static final String CABECALHO_SERVER_TIMING = "Server-Timing";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContadorDeConsultasFilter.class);
+
+	private final boolean cabecalhos;
+	private final int limite;
+
+	public ContadorDeConsultasFilter(@Value("${forum.consultas.cabecalhos:true}") boolean cabecalhos,
+			@Value("${forum.consultas.limite-por-requisicao:10}") int limite) {
+		this.cabecalhos = cabecalhos;
+		this.limite = limite;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		Consultas consultas = ContadorDeConsultas.iniciar();
+		RespostaComContagem resposta = new RespostaComContagem(response, consultas);
+
+		try {
+			filterChain.doFilter(request, resposta);
+		} finally {
+			ContadorDeConsultas.finalizar();
+		}
+
+		resposta.adicionarCabecalhos(); // Respostas sem corpo
+
+		if (consultas.getTotal() > limite) {
+			String formato = consultas.getMaisRepetida();
+			LOGGER.warn("{} {} executou {} comandos SQL (limite {}). Mais repetido ({}x): {}", request.getMethod(),
+					endpoint(request), consultas.getTotal(), limite, consultas.getRepeticoes(formato), formato);
+		}
+	}
+
+	/*
+	 * O padrão do mapeamento (ex.: /topicos/{id}), para que o log agrupe as
+	 * requisições do mesmo endpoint.
+	 */
+	private static String endpoint(HttpServletRequest request) {
+		Object padrao = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return padrao != null ? padrao.toString() : request.getRequestURI();
+	}
+
+	private class RespostaComContagem extends HttpServletResponseWrapper {
+
+		private final Consultas consultas;
+		private boolean cabecalhosAdicionados;
+		private boolean trailersAdicionados;
+
+		RespostaComContagem(HttpServletResponse response, Consultas consultas) {
+			super(response);
+			this.consultas = consultas;
+		}
+
+		void adicionarCabecalhos() {
+			if (!cabecalhos || cabecalhosAdicionados || isCommitted())
+				return;
+
+			cabecalhosAdicionados = true;
+			setHeader(CABECALHO_QUANTIDADE, String.valueOf(consultas.getTotal()));
+			setHeader(CABECALHO_SERVER_TIMING, serverTiming());
+		}
+
+		/*
+		 * Os valores do trailer só são lidos pelo servidor depois do último byte do
+		 * corpo, então trazem o total da requisição inteira.
+		 */
+		void adicionarTrailers() {
+			if (!cabecalhos || trailersAdicionados || isCommitted())
+				return;
+
+			trailersAdicionados = true;
+			try {
+				setTrailerFields(() -> {
+					Map<String, String> trailers = new HashMap<>();
+					trailers.put(CABECALHO_QUANTIDADE, String.valueOf(consultas.getTotal()));
+					trailers.put(CABECALHO_SERVER_TIMING, serverTiming());
+					return trailers;
+				});
+				setHeader("Trailer", CABECALHO_QUANTIDADE + ", " + CABECALHO_SERVER_TIMING);
+			} catch (IllegalStateException ex) {
+				// Protocolo sem trailers (ex.: HTTP/1.0): fica apenas o cabeçalho
+			}
+		}
+
+		private String serverTiming() {
+			return String.format(Locale.ROOT, "sql;desc=\"%d comandos\", app;dur=%.1f", consultas.getTotal(),
+					consultas.getDuracao());
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			adicionarCabecalhos();
+			adicionarTrailers();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			adicionarCabecalhos();
+			adicionarTrailers();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			adicionarCabecalhos();
+			super.flushBuffer();
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			adicionarCabecalhos();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			adicionarCabecalhos();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			adicionarCabecalhos();
+			super.sendRedirect(location);
+		}
+	}
+
+}
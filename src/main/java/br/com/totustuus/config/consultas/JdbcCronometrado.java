@@ -0,0 +1,190 @@
+package br.com.totustuus.config.consultas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Mede o tempo de cada comando SQL executado através de um DataSource e
+ * entrega ao LogDeConsultas.
+ * 
+ * Não existe um "evento" do JDBC dizendo que um comando terminou, então o
+ * DataSource é embrulhado em um proxy (java.lang.reflect.Proxy): as conexões
+ * que ele devolve também são proxies, e os Statements dessas conexões também.
+ * Nos Statements, os métodos execute* são cronometrados e os set* (parâmetros)
+ * são guardados. Todo o resto é apenas repassado ao objeto original.
+ * 
+ * Como é o DataSource que é embrulhado, valem tanto os comandos do Hibernate
+ * quanto os do JdbcTemplate. O tempo medido é o da execução do comando, sem a
+ * leitura das linhas do ResultSet.
+ * 
+ * @author thiago.machado
+ *
+ */
+final class JdbcCronometrado {
+
+	private JdbcCronometrado() {
+	}
+
+	/**
+	 * O proxy implementa todas as interfaces do DataSource original (no Hikari,
+	 * inclusive Closeable), para que o Spring continue fechando o pool ao
+	 * desligar a aplicação.
+	 */
+	static DataSource envolver(DataSource dataSource, LogDeConsultas log) {
+		return (DataSource) proxy(dataSource, ClassUtils.getAllInterfaces(dataSource),
+				new DataSourceHandler(dataSource, log));
+	}
+
+	private static Object proxy(Object alvo, Class<?>[] interfaces, InvocationHandler handler) {
+		return Proxy.newProxyInstance(JdbcCronometrado.class.getClassLoader(), interfaces, handler);
+	}
+
+	private abstract static class Repassador implements InvocationHandler {
+
+		protected final Object alvo;
+
+		Repassador(Object alvo) {
+			this.alvo = alvo;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				Object resultado = repassar(method, args);
+				return resultado != null ? envolver(method, args, resultado) : null;
+			}
+		}
+
+		protected Object repassar(Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(alvo, args);
+			} catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		/**
+		 * Permite embrulhar o que o método devolveu (ex.: a conexão).
+		 */
+		protected Object envolver(Method method, Object[] args, Object resultado) {
+			return resultado;
+		}
+
+	}
+
+	private static class DataSourceHandler extends Repassador {
+
+		private final LogDeConsultas log;
+
+		DataSourceHandler(DataSource alvo, LogDeConsultas log) {
+			super(alvo);
+			this.log = log;
+		}
+
+		@Override
+		protected Object envolver(Method method, Object[] args, Object resultado) {
+			if (method.getName().equals("getConnection"))
+				return proxy(resultado, new Class<?>[] { Connection.class }, new ConnectionHandler(resultado, log));
+			return resultado;
+		}
+
+	}
+
+	private static class ConnectionHandler extends Repassador {
+
+		private final LogDeConsultas log;
+
+		ConnectionHandler(Object alvo, LogDeConsultas log) {
+			super(alvo);
+			this.log = log;
+		}
+
+		/*
+		 * createStatement, prepareStatement e prepareCall. Nos dois últimos o SQL é
+		 * o primeiro argumento; no createStatement ele vem depois, no execute.
+		 */
+		@Override
+		protected Object envolver(Method method, Object[] args, Object resultado) {
+			if (!(resultado instanceof Statement))
+				return resultado;
+
+			String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+			return proxy(resultado, new Class<?>[] { method.getReturnType() },
+					new StatementHandler(resultado, sql, log));
+		}
+
+	}
+
+	/*
+	 * Um Statement é usado por uma thread de cada vez, então os parâmetros podem
+	 * ficar em campos comuns.
+	 */
+	private static class StatementHandler extends Repassador {
+
+		private final LogDeConsultas log;
+		private String sql;
+		private Map<Integer, Object> parametros = new TreeMap<>();
+		private int lote;
+
+		StatementHandler(Object alvo, String sql, LogDeConsultas log) {
+			super(alvo);
+			this.sql = sql;
+			this.log = log;
+		}
+
+		@Override
+		protected Object repassar(Method method, Object[] args) throws Throwable {
+			String nome = method.getName();
+
+			if (nome.startsWith("execute"))
+				return executar(method, args);
+
+			if (nome.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+				parametros.put((Integer) args[0], nome.equals("setNull") ? null : args[1]);
+			else if (nome.equals("clearParameters"))
+				parametros = new TreeMap<>();
+			else if (nome.equals("addBatch")) {
+				lote++;
+				if (args != null && sql == null)
+					sql = (String) args[0];
+			} else if (nome.equals("clearBatch"))
+				lote = 0;
+
+			return super.repassar(method, args);
+		}
+
+		private Object executar(Method method, Object[] args) throws Throwable {
+			String comando = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+			boolean emLote = method.getName().startsWith("executeBatch")
+					|| method.getName().startsWith("executeLargeBatch");
+
+			long inicio = System.nanoTime();
+			try {
+				return super.repassar(method, args);
+			} finally {
+				long duracao = System.nanoTime() - inicio;
+				log.registrar(comando, duracao, emLote ? Collections.emptyMap() : parametros, emLote ? lote : 0);
+				if (emLote)
+					lote = 0;
+			}
+		}
+
+	}
+
+}
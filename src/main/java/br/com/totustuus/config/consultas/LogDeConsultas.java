@@ -0,0 +1,103 @@
+package br.com.totustuus.config.consultas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log dos comandos SQL, no lugar do hibernate.show_sql.
+ * 
+ * O show_sql escreve todos os comandos no console (System.out), formatados e
+ * na própria thread da requisição, que fica esperando a escrita terminar. Aqui
+ * só é registrado:
+ * 
+ * <ul>
+ * <li>todo comando que demorar forum.consultas.log.limite-ms ou mais (WARN,
+ * tipo=lenta);</li>
+ * <li>uma amostra dos demais, na proporção de forum.consultas.log.amostragem
+ * (INFO, tipo=amostra). Com 0.01, um a cada cem comandos.</li>
+ * </ul>
+ * 
+ * Os parâmetros dos comandos podem ter senhas, e-mails, etc., então por padrão
+ * aparecem apenas pelo tipo (ex.: String). Com forum.consultas.log.valores=true
+ * os valores também são registrados, o que só faz sentido em desenvolvimento.
+ * 
+ * As linhas são no formato chave=valor, fáceis de filtrar e de importar em
+ * ferramentas de log. O logback-spring.xml manda esse logger para um arquivo
+ * próprio, através de uma fila: quem grava é outra thread, e quando a fila
+ * enche as linhas são descartadas, sem nunca bloquear a requisição.
+ * 
+ * Os tempos são medidos pelo JdbcCronometrado.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class LogDeConsultas {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LogDeConsultas.class);
+
+	private static final int TAMANHO_MAXIMO_VALOR = 100;
+
+	private final long limiteEmNanos;
+	private final double amostragem;
+	private final boolean valores;
+
+	public LogDeConsultas(long limiteEmMilissegundos, double amostragem, boolean valores) {
+		this.limiteEmNanos = TimeUnit.MILLISECONDS.toNanos(limiteEmMilissegundos);
+		this.amostragem = amostragem;
+		this.valores = valores;
+	}
+
+	/**
+	 * @param sql
+	 * @param duracao  em nanossegundos
+	 * @param parametros por posição (a primeira é 1), ou vazio
+	 * @param lote     quantidade de comandos enviados de uma vez (executeBatch), ou
+	 *                 0
+	 */
+	public void registrar(String sql, long duracao, Map<Integer, Object> parametros, int lote) {
+
+		boolean lenta = duracao >= limiteEmNanos;
+
+		if (!lenta && (amostragem <= 0 || ThreadLocalRandom.current().nextDouble() >= amostragem))
+			return;
+
+		if (lenta ? !LOGGER.isWarnEnabled() : !LOGGER.isInfoEnabled())
+			return;
+
+		String linha = String.format("tipo=%s duracao_ms=%.3f lote=%d sql=\"%s\" parametros=%s",
+				lenta ? "lenta" : "amostra", duracao / 1_000_000.0, lote, sql, parametros(parametros));
+
+		if (lenta)
+			LOGGER.warn(linha);
+		else
+			LOGGER.info(linha);
+	}
+
+	private List<String> parametros(Map<Integer, Object> parametros) {
+		List<String> lista = new ArrayList<>(parametros.size());
+		for (Object valor : parametros.values())
+			lista.add(parametro(valor));
+		return lista;
+	}
+
+	private String parametro(Object valor) {
+		if (valor == null)
+			return "null";
+
+		if (!valores)
+			return valor.getClass().getSimpleName();
+
+		String texto = String.valueOf(valor);
+		if (texto.length() > TAMANHO_MAXIMO_VALOR)
+			texto = texto.substring(0, TAMANHO_MAXIMO_VALOR) + "...";
+
+		return valor instanceof CharSequence ? "'" + texto + "'" : texto;
+	}
+
+}
@@ -0,0 +1,43 @@
+package br.com.totustuus.config.consultas;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Troca o DataSource criado pelo Spring Boot (Hikari) por um que mede o tempo
+ * dos comandos SQL (ver JdbcCronometrado e LogDeConsultas).
+ * 
+ * Um BeanPostProcessor recebe cada bean logo depois de ele ser criado e pode
+ * devolver outro objeto no lugar. Assim todos que recebem o DataSource
+ * (Hibernate, JdbcTemplate, actuator) já recebem o embrulhado.
+ * 
+ * Com forum.consultas.log.ativo=false o DataSource fica como está.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class LogDeConsultasPostProcessor implements BeanPostProcessor {
+
+	private final boolean ativo;
+	private final LogDeConsultas log;
+
+	public LogDeConsultasPostProcessor(@Value("${forum.consultas.log.ativo:true}") boolean ativo,
+			@Value("${forum.consultas.log.limite-ms:200}") long limite,
+			@Value("${forum.consultas.log.amostragem:0.01}") double amostragem,
+			@Value("${forum.consultas.log.valores:false}") boolean valores) {
+		this.ativo = ativo;
+		this.log = new LogDeConsultas(limite, amostragem, valores);
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (ativo && bean instanceof DataSource)
+			return JdbcCronometrado.envolver((DataSource) bean, log);
+		return bean;
+	}
+
+}
@@ -0,0 +1,34 @@
+package br.com.totustuus.config.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca um método GET do TopicoController que deve responder requisições
+ * condicionais (If-None-Match e, no detalhe, If-Modified-Since) com 304. Ver
+ * TopicoCondicionalInterceptor.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RespostaCondicional {
+
+	Recurso value();
+
+	enum Recurso {
+		/**
+		 * Listagens: a versão depende do parâmetro "cursoNome", se informado.
+		 */
+		LISTA,
+		/**
+		 * Detalhe: o ETag é a versão do tópico, definida pelo controller, e o
+		 * Last-Modified vem do TopicoVersaoService.
+		 */
+		DETALHE
+	}
+
+}
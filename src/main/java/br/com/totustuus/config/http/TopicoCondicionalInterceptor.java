@@ -0,0 +1,121 @@
+package br.com.totustuus.config.http;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import br.com.totustuus.config.http.RespostaCondicional.Recurso;
+import br.com.totustuus.service.TopicoVersaoService;
+
+/**
+ * Implementa o GET condicional dos endpoints de tópicos.
+ * 
+ * Os clientes consultam /topicos e /topicos/{id} repetidamente e baixam o corpo
+ * inteiro mesmo quando nada mudou. Com o ETag, quando o cliente repete a
+ * requisição enviando If-None-Match e nada mudou, respondemos 304 (Not
+ * Modified) sem corpo.
+ * 
+ * <ul>
+ * <li>Listagens: a versão vem do TopicoVersaoService, que fica em memória,
+ * então o 304 é devolvido antes do controller ser chamado: nenhuma consulta JPA
+ * e nenhuma serialização com o Jackson.</li>
+ * <li>Detalhe: o ETag é a versão do tópico (@Version), definida pelo próprio
+ * detalhar() do TopicoController. Quando o método devolve um ResponseEntity com
+ * ETag, o Spring compara com o If-None-Match e responde 304 sozinho. Como o
+ * detalhe fica em cache, o 304 continua sem consultas e sem serialização.</li>
+ * <li>Detalhe, Last-Modified: a data da última alteração do tópico também vem
+ * do TopicoVersaoService. Uma requisição com If-Modified-Since (e sem
+ * If-None-Match, que tem prioridade) recebe o 304 aqui, antes do
+ * controller.</li>
+ * </ul>
+ * 
+ * O PATCH usa essa mesma versão no If-Match, então o cliente pode reenviar o
+ * ETag que recebeu.
+ * 
+ * Também enviamos o Cache-Control como público, para que um cache
+ * intermediário (proxy, CDN) possa responder requisições repetidas durante
+ * forum.http.cache.max-age segundos e, depois disso, revalidar com o ETag (ou,
+ * no detalhe, com o Last-Modified).
+ * 
+ * O interceptador é registrado na classe WebConfigurations.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class TopicoCondicionalInterceptor implements HandlerInterceptor {
+
+	private final TopicoVersaoService topicoVersaoService;
+	private final String cacheControl;
+
+	public TopicoCondicionalInterceptor(TopicoVersaoService topicoVersaoService,
+			@Value("${forum.http.cache.max-age:5}") long maxAge) {
+		this.topicoVersaoService = topicoVersaoService;
+		this.cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic()
+				.mustRevalidate().getHeaderValue();
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+		if (!(handler instanceof HandlerMethod))
+			return true;
+
+		RespostaCondicional condicional = ((HandlerMethod) handler).getMethodAnnotation(RespostaCondicional.class);
+
+		if (condicional == null)
+			return true;
+
+		response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+		ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
+		if (condicional.value() == Recurso.DETALHE) {
+			Long id = idDoTopico(request);
+			if (id == null)
+				return true;
+
+			// O ETag é definido pelo controller e, quando enviado, é ele quem decide
+			if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+				response.setDateHeader(HttpHeaders.LAST_MODIFIED, topicoVersaoService.ultimaAlteracao(id));
+				return true;
+			}
+
+			// Compara com o If-Modified-Since e inclui o Last-Modified na resposta
+			return !webRequest.checkNotModified(topicoVersaoService.ultimaAlteracao(id));
+		}
+
+		/*
+		 * checkNotModified() compara o ETag com o If-None-Match da requisição. Se nada
+		 * mudou, ele já define o status 304 e devolvemos false para o Spring não
+		 * chamar o controller. Caso contrário, ele apenas inclui o ETag na resposta.
+		 */
+		return !webRequest.checkNotModified(topicoVersaoService.etagDaLista(request.getParameter("cursoNome")));
+	}
+
+	/*
+	 * O {id} de /topicos/{id}, já extraído pelo Spring ao escolher o método.
+	 */
+	private static Long idDoTopico(HttpServletRequest request) {
+		Map<?, ?> variaveis = (Map<?, ?>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		Object id = variaveis != null ? variaveis.get("id") : null;
+
+		try {
+			return id != null ? Long.valueOf(id.toString()) : null;
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+}
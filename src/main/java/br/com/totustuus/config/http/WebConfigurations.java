@@ -0,0 +1,28 @@
+package br.com.totustuus.config.http;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configurações do Spring MVC.
+ * 
+ * Aqui registramos os interceptadores, que são executados antes (e depois) dos
+ * métodos dos controllers.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Configuration
+public class WebConfigurations implements WebMvcConfigurer {
+
+	@Autowired
+	private TopicoCondicionalInterceptor topicoCondicionalInterceptor;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(topicoCondicionalInterceptor).addPathPatterns("/topicos", "/topicos/**");
+	}
+
+}
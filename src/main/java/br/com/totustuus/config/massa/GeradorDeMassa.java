@@ -0,0 +1,272 @@
+package br.com.totustuus.config.massa;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import br.com.totustuus.model.StatusTopico;
+
+/**
+ * Gera uma massa de dados grande, parecida com a de produção, para testes de
+ * desempenho: o data.sql tem três tópicos, e com três tópicos qualquer
+ * consulta parece rápida.
+ * 
+ * Só existe com o profile "massa" do Spring:
+ * 
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.profiles=massa
+ * java -jar app.jar --spring.profiles.active=massa --forum.massa.topicos=2000000
+ * mvn -P carga test -Dspring.profiles.active=massa
+ * </pre>
+ * 
+ * Nos testes, basta @ActiveProfiles("massa") (ver GeradorDeMassaTest). Os
+ * parâmetros, com os valores padrão, estão em application-massa.properties.
+ * 
+ * Como a massa é criada:
+ * 
+ * <ul>
+ * <li>os cursos, os autores e a quantidade de respostas de cada tópico são
+ * sorteados com a distribuição de Zipf (ver Zipf): poucos cursos muito
+ * movimentados, muitos autores com poucos tópicos, e alguns tópicos com
+ * centenas de respostas;</li>
+ * <li>tudo é sorteado por um SplittableRandom criado com
+ * forum.massa.semente: a mesma semente gera sempre os mesmos dados;</li>
+ * <li>as linhas são gravadas com JdbcTemplate.batchUpdate(), em lotes de
+ * forum.massa.tamanho-lote, sem passar pelo Hibernate;</li>
+ * <li>os ids dos tópicos são reservados na sequence topico_seq, que depois
+ * continua após o último id gerado. Assim os tópicos cadastrados pela API
+ * (pooled-lo, ver Topico) não usam um id já gravado aqui.</li>
+ * </ul>
+ * 
+ * O ApplicationRunner é executado antes do ApplicationReadyEvent, então os
+ * serviços que carregam dados em memória quando a aplicação sobe (contadores,
+ * busca, cursos) já encontram a massa gravada.
+ * 
+ * Todos os usuários gerados têm a senha 123456.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+@Profile("massa")
+public class GeradorDeMassa implements ApplicationRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GeradorDeMassa.class);
+
+	// BCrypt de "123456", a mesma senha do usuário do data.sql
+	private static final String SENHA = "$2a$04$qP517gz1KNVEJUTCkUQCY.JzEoXzHFjLAhPQjrg5iP6Z/UmWjvUhq";
+
+	private static final String[] CATEGORIAS = { "Programação", "Front-end", "Mobile", "Infraestrutura",
+			"Data Science", "Design" };
+
+	private static final String[] ASSUNTOS = { "Spring Boot", "JPA", "Hibernate", "Java", "HTML", "CSS",
+			"JavaScript", "React", "Angular", "Docker", "Kubernetes", "SQL", "Maven", "Gradle", "JUnit", "Git",
+			"Android", "Python", "Segurança", "JWT", "Cache", "REST" };
+
+	private static final String[] PROBLEMAS = { "erro ao compilar", "exceção ao subir a aplicação",
+			"consulta lenta", "teste falhando", "dúvida na configuração", "problema de desempenho",
+			"erro de validação", "não consigo fazer o deploy", "dependência não encontrada", "timeout na requisição" };
+
+	private final JdbcTemplate jdbcTemplate;
+	private final long semente;
+	private final int cursos;
+	private final int usuarios;
+	private final int topicos;
+	private final int respostasMaximo;
+	private final double assimetriaCursos;
+	private final double assimetriaAutores;
+	private final double assimetriaRespostas;
+	private final int dias;
+	private final LocalDateTime dataFinal;
+	private final int tamanhoLote;
+
+	public GeradorDeMassa(JdbcTemplate jdbcTemplate, @Value("${forum.massa.semente}") long semente,
+			@Value("${forum.massa.cursos}") int cursos, @Value("${forum.massa.usuarios}") int usuarios,
+			@Value("${forum.massa.topicos}") int topicos,
+			@Value("${forum.massa.respostas-maximo}") int respostasMaximo,
+			@Value("${forum.massa.assimetria.cursos}") double assimetriaCursos,
+			@Value("${forum.massa.assimetria.autores}") double assimetriaAutores,
+			@Value("${forum.massa.assimetria.respostas}") double assimetriaRespostas,
+			@Value("${forum.massa.dias}") int dias, @Value("${forum.massa.data-final}") String dataFinal,
+			@Value("${forum.massa.tamanho-lote}") int tamanhoLote) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.semente = semente;
+		this.cursos = cursos;
+		this.usuarios = usuarios;
+		this.topicos = topicos;
+		this.respostasMaximo = respostasMaximo;
+		this.assimetriaCursos = assimetriaCursos;
+		this.assimetriaAutores = assimetriaAutores;
+		this.assimetriaRespostas = assimetriaRespostas;
+		this.dias = dias;
+		this.dataFinal = LocalDateTime.parse(dataFinal);
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		gerar();
+	}
+
+	public void gerar() {
+		long inicio = System.nanoTime();
+		SplittableRandom random = new SplittableRandom(semente);
+
+		long primeiroCurso = gerarCursos();
+		long primeiroUsuario = gerarUsuarios();
+		long respostas = gerarTopicos(random, primeiroCurso, primeiroUsuario);
+
+		LOGGER.info("Massa gerada: {} cursos, {} usuários, {} tópicos e {} respostas em {} s", cursos, usuarios,
+				topicos, respostas, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio));
+	}
+
+	/*
+	 * Cursos e usuários usam IDENTITY. Os ids são informados no INSERT (para que
+	 * os tópicos possam referenciá-los) e depois a coluna continua após o último.
+	 */
+	private long gerarCursos() {
+		long primeiro = proximoId("curso");
+		List<Object[]> linhas = new ArrayList<>();
+
+		for (int i = 0; i < cursos; i++)
+			linhas.add(new Object[] { primeiro + i, String.format("Curso %04d", i + 1),
+					CATEGORIAS[i % CATEGORIAS.length] });
+
+		jdbcTemplate.batchUpdate("INSERT INTO curso(id, nome, categoria) VALUES (?, ?, ?)", linhas);
+		continuarIdentity("curso", primeiro + cursos);
+		return primeiro;
+	}
+
+	private long gerarUsuarios() {
+		long primeiro = proximoId("usuario");
+		List<Object[]> linhas = new ArrayList<>();
+
+		for (int i = 0; i < usuarios; i++) {
+			linhas.add(new Object[] { primeiro + i, "Usuário " + (i + 1), "usuario" + (i + 1) + "@massa.com", SENHA });
+			if (linhas.size() == tamanhoLote)
+				gravar("INSERT INTO usuario(id, nome, email, senha) VALUES (?, ?, ?, ?)", linhas);
+		}
+
+		gravar("INSERT INTO usuario(id, nome, email, senha) VALUES (?, ?, ?, ?)", linhas);
+		continuarIdentity("usuario", primeiro + usuarios);
+		return primeiro;
+	}
+
+	/**
+	 * Gera os tópicos e as respostas de cada um.
+	 * 
+	 * As datas de criação crescem junto com o id, distribuídas ao longo de
+	 * forum.massa.dias até forum.massa.data-final.
+	 * 
+	 * @return a quantidade de respostas geradas
+	 */
+	private long gerarTopicos(SplittableRandom random, long primeiroCurso, long primeiroUsuario) {
+
+		Zipf sorteioDeCurso = new Zipf(cursos, assimetriaCursos);
+		Zipf sorteioDeAutor = new Zipf(usuarios, assimetriaAutores);
+		Zipf sorteioDeRespostas = new Zipf(respostasMaximo + 1, assimetriaRespostas);
+
+		long primeiroTopico = reservarIdsDosTopicos();
+		long inicio = dataFinal.minusDays(dias).toEpochSecond(ZoneOffset.UTC);
+		double intervalo = TimeUnit.DAYS.toSeconds(dias) / (double) topicos;
+
+		List<Object[]> linhasDeTopicos = new ArrayList<>();
+		List<Object[]> linhasDeRespostas = new ArrayList<>();
+		long respostas = 0;
+
+		for (int i = 0; i < topicos; i++) {
+			long id = primeiroTopico + i;
+			LocalDateTime dataCriacao = LocalDateTime.ofEpochSecond(inicio + (long) (i * intervalo), 0,
+					ZoneOffset.UTC);
+			int quantidadeDeRespostas = sorteioDeRespostas.sortear(random);
+			StatusTopico status = status(random, quantidadeDeRespostas);
+			String assunto = ASSUNTOS[random.nextInt(ASSUNTOS.length)];
+			String problema = PROBLEMAS[random.nextInt(PROBLEMAS.length)];
+
+			linhasDeTopicos.add(new Object[] { id, "Dúvida de " + assunto + ": " + problema,
+					"Estou com " + problema + " usando " + assunto + ". Alguém pode ajudar?",
+					Timestamp.valueOf(dataCriacao), status.name(),
+					primeiroUsuario + sorteioDeAutor.sortear(random), primeiroCurso + sorteioDeCurso.sortear(random) });
+
+			for (int r = 0; r < quantidadeDeRespostas; r++) {
+				LocalDateTime dataResposta = dataCriacao.plusMinutes(1 + random.nextInt(60 * 24 * 30));
+				boolean solucao = r == 0 && status == StatusTopico.SOLUCIONADO;
+
+				linhasDeRespostas.add(new Object[] { Timestamp.valueOf(dataResposta),
+						"Resposta " + (r + 1) + " sobre " + assunto, solucao,
+						primeiroUsuario + sorteioDeAutor.sortear(random), id });
+			}
+			respostas += quantidadeDeRespostas;
+
+			// Os tópicos são gravados antes das respostas que apontam para eles
+			if (linhasDeTopicos.size() >= tamanhoLote || linhasDeRespostas.size() >= tamanhoLote)
+				gravarTopicosERespostas(linhasDeTopicos, linhasDeRespostas);
+
+			if ((i + 1) % 100_000 == 0)
+				LOGGER.info("Massa: {} de {} tópicos", i + 1, topicos);
+		}
+
+		gravarTopicosERespostas(linhasDeTopicos, linhasDeRespostas);
+		return respostas;
+	}
+
+	private void gravarTopicosERespostas(List<Object[]> linhasDeTopicos, List<Object[]> linhasDeRespostas) {
+		gravar("INSERT INTO topico(id, titulo, mensagem, data_criacao, status, autor_id, curso_id, versao) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, 0)", linhasDeTopicos);
+		gravar("INSERT INTO resposta(data_criacao, mensagem, solucao, autor_id, topico_id) VALUES (?, ?, ?, ?, ?)",
+				linhasDeRespostas);
+	}
+
+	private void gravar(String sql, List<Object[]> linhas) {
+		if (linhas.isEmpty())
+			return;
+
+		jdbcTemplate.batchUpdate(sql, linhas);
+		linhas.clear();
+	}
+
+	private static StatusTopico status(SplittableRandom random, int quantidadeDeRespostas) {
+		if (quantidadeDeRespostas == 0)
+			return StatusTopico.NAO_RESPONDIDO;
+
+		int sorteio = random.nextInt(100);
+		if (sorteio < 50)
+			return StatusTopico.NAO_SOLUCIONADO;
+
+		return sorteio < 85 ? StatusTopico.SOLUCIONADO : StatusTopico.FECHADO;
+	}
+
+	/*
+	 * Pega o próximo valor da sequence e faz ela continuar depois do último
+	 * tópico gerado. Com o pooled-lo o Hibernate usa os ids à partir do valor que
+	 * recebe da sequence, então nenhum tópico cadastrado depois vai repetir um id
+	 * dessa faixa.
+	 */
+	private long reservarIdsDosTopicos() {
+		long primeiro = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR topico_seq", Long.class);
+		jdbcTemplate.execute("ALTER SEQUENCE topico_seq RESTART WITH " + (primeiro + topicos));
+		return primeiro;
+	}
+
+	private long proximoId(String tabela) {
+		return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + tabela, Long.class);
+	}
+
+	private void continuarIdentity(String tabela, long proximo) {
+		jdbcTemplate.execute("ALTER TABLE " + tabela + " ALTER COLUMN id RESTART WITH " + proximo);
+	}
+
+}
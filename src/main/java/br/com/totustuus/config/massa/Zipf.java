@@ -0,0 +1,44 @@
+package br.com.totustuus.config.massa;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Sorteia posições de 0 a n-1 seguindo a distribuição de Zipf: a posição 0 é
+ * a mais sorteada, a posição 1 é sorteada cerca de 1/2^s vezes menos, a
+ * posição 2 cerca de 1/3^s vezes menos, e assim por diante.
+ * 
+ * É o formato de muitos dados reais: poucos cursos concentram a maior parte
+ * dos tópicos, a maioria dos usuários escreve pouco, a maioria dos tópicos tem
+ * poucas respostas e alguns têm centenas. Quanto maior a assimetria (s), mais
+ * concentrados nas primeiras posições ficam os sorteios.
+ * 
+ * A tabela acumulada é calculada uma vez e cada sorteio é uma busca binária.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class Zipf {
+
+	private final double[] acumulado;
+
+	public Zipf(int n, double assimetria) {
+		acumulado = new double[n];
+
+		double soma = 0;
+		for (int posicao = 0; posicao < n; posicao++) {
+			soma += 1 / Math.pow(posicao + 1, assimetria);
+			acumulado[posicao] = soma;
+		}
+
+		for (int posicao = 0; posicao < n; posicao++)
+			acumulado[posicao] /= soma;
+	}
+
+	public int sortear(SplittableRandom random) {
+		int posicao = Arrays.binarySearch(acumulado, random.nextDouble());
+		posicao = posicao >= 0 ? posicao : -posicao - 1;
+		return Math.min(posicao, acumulado.length - 1);
+	}
+
+}
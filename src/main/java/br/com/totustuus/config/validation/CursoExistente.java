@@ -0,0 +1,35 @@
+package br.com.totustuus.config.validation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+
+/**
+ * Anotação do Bean Validation criada por nós: o valor precisa ser o nome de um
+ * curso existente.
+ * 
+ * Quem faz a validação é a classe informada em @Constraint
+ * (CursoExistenteValidator). Valores nulos são considerados válidos, quem
+ * trata isso é o @NotNull.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Documented
+@Constraint(validatedBy = CursoExistenteValidator.class)
+@Target({ ElementType.FIELD, ElementType.PARAMETER })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CursoExistente {
+
+	String message() default "curso não encontrado";
+
+	Class<?>[] groups() default {};
+
+	Class<? extends Payload>[] payload() default {};
+
+}
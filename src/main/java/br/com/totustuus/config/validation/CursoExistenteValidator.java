@@ -0,0 +1,30 @@
+package br.com.totustuus.config.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import br.com.totustuus.service.CursoCacheService;
+
+/**
+ * Validação da anotação @CursoExistente.
+ * 
+ * O Spring cria os validadores do Bean Validation, por isso podemos usar
+ * o @Autowired aqui. A consulta é feita no CursoCacheService, sem acessar o
+ * banco.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class CursoExistenteValidator implements ConstraintValidator<CursoExistente, String> {
+
+	@Autowired
+	private CursoCacheService cursoCacheService;
+
+	@Override
+	public boolean isValid(String cursoNome, ConstraintValidatorContext context) {
+		return cursoNome == null || cursoCacheService.buscarPeloNome(cursoNome) != null;
+	}
+
+}
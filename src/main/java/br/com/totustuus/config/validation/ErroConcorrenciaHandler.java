@@ -0,0 +1,31 @@
+package br.com.totustuus.config.validation;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Controller Advice (ver ErroValidacaoHandler) para as falhas de concorrência
+ * otimista.
+ * 
+ * Quando duas requisições alteram o mesmo tópico ao mesmo tempo, a que faz o
+ * commit por último encontra o registro em outra versão (@Version) e a JPA
+ * lança ObjectOptimisticLockingFailureException. Sem esse tratamento o cliente
+ * receberia um 500, como se fosse um erro do servidor. Devolvemos 409
+ * (Conflict), o mesmo do PATCH com If-Match desatualizado: o cliente deve
+ * buscar o tópico de novo e reaplicar a alteração.
+ * 
+ * @author thiago.machado
+ *
+ */
+@RestControllerAdvice
+public class ErroConcorrenciaHandler {
+
+	@ResponseStatus(code = HttpStatus.CONFLICT)
+	@ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+	public void handle(ObjectOptimisticLockingFailureException exception) {
+	}
+
+}
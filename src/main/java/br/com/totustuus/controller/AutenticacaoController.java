@@ -1,8 +1,13 @@
 package br.com.totustuus.controller;
 
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -13,17 +18,30 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import br.com.totustuus.model.Usuario;
 import br.com.totustuus.model.dto.LoginRequestDTO;
+import br.com.totustuus.model.dto.RefreshTokenRequestDTO;
 import br.com.totustuus.model.dto.TokenDTO;
+import br.com.totustuus.repository.UsuarioRepository;
+import br.com.totustuus.security.AutenticacaoExecutor;
+import br.com.totustuus.security.AutenticacaoSobrecarregadaException;
+import br.com.totustuus.security.RefreshTokenService;
+import br.com.totustuus.security.TentativasDeLogin;
 import br.com.totustuus.security.TokenService;
+import io.micrometer.core.annotation.Timed;
 
 /**
  * Controller responsável pelo login
  * 
+ * @Timed: o tempo do login e da renovação entra na métrica
+ * http.server.requests com o mesmo histograma do TopicoController (p50, p99,
+ * p99.9).
+ * 
  * @author thiago.machado
  *
  */
 @RestController
+@Timed(histogram = true, percentiles = { 0.5, 0.99, 0.999 })
 @RequestMapping("/auth")
 public class AutenticacaoController {
 
@@ -38,6 +56,18 @@ public class AutenticacaoController {
 	@Autowired
 	private TokenService tokenService;
 
+	@Autowired
+	private AutenticacaoExecutor autenticacaoExecutor;
+
+	@Autowired
+	private TentativasDeLogin tentativasDeLogin;
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
 	/**
 	 * Esse método ficará responsável pela autenticação. Iremos receber e-mail e
 	 * senha que serão armazenados em LoginRequestDTO.
@@ -50,18 +80,39 @@ public class AutenticacaoController {
 	 * Spring vai entrar no método loadUserByUsername() da classe
 	 * AutenticacaoService e fará as validações que já implemetamos.
 	 * 
+	 * A verificação da senha (BCrypt) é cara, então antes dela:
+	 * 
+	 * <ul>
+	 * <li>a tentativa é reservada, e e-mails (por IP) e IPs com muitas
+	 * tentativas recentes sem sucesso são recusados com 429 (ver
+	 * TentativasDeLogin);</li>
+	 * <li>a verificação roda no pool de threads do AutenticacaoExecutor, que
+	 * responde 503 quando há logins demais aguardando.</li>
+	 * </ul>
+	 * 
 	 * @param loginRequestDTO
 	 * @return
 	 */
 	// http://localhost:8080/auth
 	@PostMapping
-	public ResponseEntity<TokenDTO> autenticar(@RequestBody @Valid LoginRequestDTO loginRequestDTO) {
+	public ResponseEntity<TokenDTO> autenticar(@RequestBody @Valid LoginRequestDTO loginRequestDTO,
+			HttpServletRequest request) {
+
+		String ip = request.getRemoteAddr();
+
+		if (!tentativasDeLogin.reservar(loginRequestDTO.getEmail(), ip)) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, String.valueOf(tentativasDeLogin.getJanelaEmSegundos())).build();
+		}
 
 		UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = loginRequestDTO.converter();
 
 		try {
-			Authentication authenticate = authenticationManager.authenticate(usernamePasswordAuthenticationToken);
+			Authentication authenticate = autenticacaoExecutor
+					.autenticar(() -> authenticationManager.authenticate(usernamePasswordAuthenticationToken));
+			tentativasDeLogin.registrarSucesso(loginRequestDTO.getEmail(), ip);
 			String token = tokenService.gerarToken(authenticate);
+			String refreshToken = refreshTokenService.gerar(((Usuario) authenticate.getPrincipal()).getId());
 
 			/*
 			 * Além do token, também precisamos dizer para o cliente qual o tipo de
@@ -75,9 +126,41 @@ public class AutenticacaoController {
 			 * como o Basic e o Digest.
 			 */
 
-			return ResponseEntity.ok(new TokenDTO(token, "Bearer"));
+			return ResponseEntity.ok(new TokenDTO(token, "Bearer", refreshToken));
 		} catch (AuthenticationException ex) {
-			return ResponseEntity.badRequest().build();
+			return ResponseEntity.badRequest().build(); // A tentativa reservada fica contando como falha
+		} catch (AutenticacaoSobrecarregadaException ex) {
+			tentativasDeLogin.devolver(loginRequestDTO.getEmail(), ip);
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
 		}
 	}
+
+	/**
+	 * Gera um novo token de acesso à partir do refresh token recebido no login
+	 * (ou na última renovação), sem verificar a senha de novo.
+	 * 
+	 * O refresh token usado deixa de valer, e um novo é devolvido junto com o
+	 * token de acesso. Usar de novo um refresh token já trocado revoga todos os
+	 * tokens daquele login (ver RefreshTokenService). O usuário é lido do banco
+	 * para que o novo token tenha o nome e os perfis atuais.
+	 * 
+	 * @param refreshTokenRequestDTO
+	 * @return
+	 */
+	// http://localhost:8080/auth/refresh
+	@PostMapping("/refresh")
+	public ResponseEntity<TokenDTO> renovar(@RequestBody @Valid RefreshTokenRequestDTO refreshTokenRequestDTO) {
+
+		RefreshTokenService.Rotacao rotacao = refreshTokenService.rotacionar(refreshTokenRequestDTO.getRefreshToken());
+		if (rotacao == null)
+			return ResponseEntity.badRequest().build();
+
+		Optional<Usuario> usuario = usuarioRepository.findById(rotacao.getUsuarioId());
+		if (!usuario.isPresent())
+			return ResponseEntity.badRequest().build();
+
+		String token = tokenService.gerarToken(usuario.get());
+
+		return ResponseEntity.ok(new TokenDTO(token, "Bearer", rotacao.getRefreshToken()));
+	}
 }
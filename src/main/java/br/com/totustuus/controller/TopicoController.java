@@ -1,39 +1,78 @@
 package br.com.totustuus.controller;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.totustuus.config.cache.CarregamentoUnico;
+import br.com.totustuus.config.cache.ListaDeTopicosChave;
+import br.com.totustuus.config.http.RespostaCondicional;
+import br.com.totustuus.config.http.RespostaCondicional.Recurso;
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.model.Curso;
 import br.com.totustuus.model.Topico;
+import br.com.totustuus.model.dto.ImportacaoResponseDTO;
 import br.com.totustuus.model.dto.TopicoAtualizarRequestDTO;
+import br.com.totustuus.model.dto.TopicoCursor;
+import br.com.totustuus.model.dto.TopicoCursorResponseDTO;
 import br.com.totustuus.model.dto.TopicoDetalheResponseDTO;
+import br.com.totustuus.model.dto.TopicoLoteRequestDTO;
+import br.com.totustuus.model.dto.TopicoLoteResponseDTO;
+import br.com.totustuus.model.dto.TopicoLoteStatusRequestDTO;
+import br.com.totustuus.model.dto.TopicoPatchRequestDTO;
 import br.com.totustuus.model.dto.TopicoRequestDTO;
 import br.com.totustuus.model.dto.TopicoResponseDTO;
-import br.com.totustuus.repository.CursoRepository;
+import br.com.totustuus.model.dto.TopicoTotalResponseDTO;
+import br.com.totustuus.model.dto.TopicoVersaoResponseDTO;
+import br.com.totustuus.repository.AtualizacaoParcial;
 import br.com.totustuus.repository.TopicoRepository;
+import br.com.totustuus.service.CursoCacheService;
+import br.com.totustuus.service.TopicoBuscaService;
+import br.com.totustuus.service.TopicoContadorService;
+import br.com.totustuus.service.TopicoImportacaoService;
+import br.com.totustuus.service.TopicoLoteService;
+import io.micrometer.core.annotation.Timed;
 
 /**
  * Anotar a classe com @RestController significa que a classe já assume que todo
@@ -42,13 +81,24 @@ import br.com.totustuus.repository.TopicoRepository;
  * Com isso, não é mais preciso anotar os métodos nesse controller
  * com @ResponseBody.
  * 
+ * @Timed registra o tempo de cada requisição (métrica http.server.requests,
+ * separada por método, uri e status) com um histograma, para que os percentis
+ * (p50, p99, p99.9) possam ser calculados em /actuator/metrics e no Prometheus.
+ * 
  * @author thiago.machado
  *
  */
 @RestController
+@Timed(histogram = true, percentiles = { 0.5, 0.99, 0.999 })
 @RequestMapping("/topicos")
 public class TopicoController {
 
+	// Quantidade máxima de registros por página na listagem por cursor
+	private static final int LIMITE_CURSOR = 100;
+
+	// Newline delimited JSON: um JSON por linha (usado na exportação)
+	private static final String NDJSON = "application/x-ndjson";
+
 	/*
 	 * Essa interface possui os métodos necessários quanto a entidade Topico.
 	 * Lembrar do Repository e do @DAO no Android.
@@ -57,7 +107,34 @@ public class TopicoController {
 	private TopicoRepository topicoRepository;
 
 	@Autowired
-	private CursoRepository cursoRepository;
+	private CursoCacheService cursoCacheService;
+
+	@Autowired
+	private TopicoContadorService topicoContadorService;
+
+	@Autowired
+	private TopicoBuscaService topicoBuscaService;
+
+	@Autowired
+	private TopicoImportacaoService topicoImportacaoService;
+
+	@Autowired
+	private TopicoLoteService topicoLoteService;
+
+	/*
+	 * Usado para publicar o TopicoAlteradoEvent nos métodos que alteram tópicos.
+	 */
+	@Autowired
+	private ApplicationEventPublisher publicador;
+
+	@Autowired
+	private CarregamentoUnico carregamentoUnico;
+
+	/*
+	 * O mesmo ObjectMapper que o Spring usa para gerar os JSON dos endpoints.
+	 */
+	@Autowired
+	private ObjectMapper objectMapper;
 
 	/**
 	 * Agora é possível fazer paginação usando Pageable. Precisamos somente criar
@@ -84,6 +161,7 @@ public class TopicoController {
 	 */
 	// http://localhost:8080/topicos?pagina=0&quantidade=1
 	@GetMapping
+	@RespostaCondicional(Recurso.LISTA)
 	public Page<TopicoResponseDTO> lista(@RequestParam(required = false, value = "cursoNome") String cursoNome,
 			@RequestParam("pagina") int pagina, @RequestParam("quantidade") int quantidade,
 			@RequestParam(required = false, value = "ordenacao") String ordenacao) {
@@ -96,14 +174,77 @@ public class TopicoController {
 		else
 			pageable = PageRequest.of(pagina, quantidade);
 
-		Page<Topico> topicos = null;
+		/*
+		 * As consultas com projeção já devolvem o TopicoResponseDTO, sem carregar as
+		 * entidades Topico, Usuario e Curso (ver TopicoRepository).
+		 */
+		if (cursoNome == null)
+			return topicoRepository.selecionarResumoDosTopicos(pageable);
+
+		return topicoRepository.selecionarResumoDosTopicosPeloNomeCurso(cursoNome, pageable);
+	}
+
+	/**
+	 * Listagem com paginação por cursor (keyset).
+	 *
+	 * A paginação com PageRequest.of(pagina, quantidade) usa OFFSET: para entregar
+	 * a página 10.000 o banco precisa percorrer e descartar todos os registros
+	 * anteriores. Aqui o cliente devolve, no parâmetro "after", o cursor recebido
+	 * na resposta anterior e o banco vai direto ao ponto pelo índice de
+	 * (dataCriacao, id). Assim qualquer página custa o mesmo que a primeira.
+	 *
+	 * Esse método é escolhido pelo Spring quando o parâmetro "limit" é informado
+	 * (params = "limit"). Sem ele, a requisição cai no método lista().
+	 *
+	 * Buscamos sempre um registro a mais do que o limite: se ele vier, sabemos
+	 * que existe uma próxima página sem precisar de COUNT.
+	 *
+	 * @param cursoNome
+	 * @param after     cursor opaco devolvido na resposta anterior
+	 * @param limit     quantidade de registros (máximo LIMITE_CURSOR)
+	 * @return
+	 */
+	// http://localhost:8080/topicos?limit=10
+	// http://localhost:8080/topicos?limit=10&after={proximo}
+	@GetMapping(params = "limit")
+	@RespostaCondicional(Recurso.LISTA)
+	public ResponseEntity<TopicoCursorResponseDTO> listaPorCursor(
+			@RequestParam(required = false, value = "cursoNome") String cursoNome,
+			@RequestParam(required = false, value = "after") String after, @RequestParam("limit") int limit) {
+
+		if (limit <= 0)
+			return ResponseEntity.badRequest().build();
+
+		TopicoCursor cursor = null;
+
+		if (after != null) {
+			cursor = TopicoCursor.decodificar(after);
+			if (cursor == null)
+				return ResponseEntity.badRequest().build(); // Cursor adulterado ou inválido
+		}
+
+		int quantidade = Math.min(limit, LIMITE_CURSOR);
+		Pageable pageable = PageRequest.of(0, quantidade + 1);
+
+		List<TopicoResponseDTO> topicos = null;
 
 		if (cursoNome == null)
-			topicos = topicoRepository.findAll(pageable);
+			topicos = cursor == null ? topicoRepository.selecionarPrimeirosTopicos(pageable)
+					: topicoRepository.selecionarTopicosApos(cursor.getDataCriacao(), cursor.getId(), pageable);
 		else
-			topicos = topicoRepository.selecionarTopicosPeloNomeCurso(cursoNome, pageable);
+			topicos = cursor == null ? topicoRepository.selecionarPrimeirosTopicosPeloNomeCurso(cursoNome, pageable)
+					: topicoRepository.selecionarTopicosPeloNomeCursoApos(cursoNome, cursor.getDataCriacao(),
+							cursor.getId(), pageable);
+
+		String proximo = null;
 
-		return TopicoResponseDTO.converter(topicos);
+		if (topicos.size() > quantidade) {
+			topicos = topicos.subList(0, quantidade);
+			TopicoResponseDTO ultimo = topicos.get(quantidade - 1);
+			proximo = new TopicoCursor(ultimo.getDataCriacao(), ultimo.getId()).codificar();
+		}
+
+		return ResponseEntity.ok(new TopicoCursorResponseDTO(topicos, proximo));
 	}
 
 	/**
@@ -167,19 +308,142 @@ public class TopicoController {
 	// serão: page=0, size=10, sorte=id,desc)
 
 	@RequestMapping(value = "/paginaNoParametro", method = RequestMethod.GET)
-	@Cacheable(value = "listaDeTopicosPorPagina")
+	@RespostaCondicional(Recurso.LISTA)
+	@Cacheable(value = "listaDeTopicosPorPagina", keyGenerator = "listaDeTopicosKeyGenerator")
 	public Page<TopicoResponseDTO> listaComPaginacaoNoParametro(
 			@RequestParam(required = false, value = "cursoNome") String cursoNome,
 			@PageableDefault(sort = "id", direction = Direction.DESC, page = 0, size = 10) Pageable pageable) {
 
-		Page<Topico> topicos = null;
+		/*
+		 * Se várias requisições chegarem ao mesmo tempo para uma página que não está
+		 * em cache, apenas a primeira vai ao banco e as outras aguardam o resultado
+		 * dela (ver CarregamentoUnico).
+		 */
+		return carregamentoUnico.executar("listaDeTopicosPorPagina", new ListaDeTopicosChave(cursoNome, pageable),
+				() -> {
+					if (cursoNome == null)
+						return topicoRepository.selecionarResumoDosTopicos(pageable);
+
+					return topicoRepository.selecionarResumoDosTopicosPeloNomeCurso(cursoNome, pageable);
+				});
+	}
+
+	/**
+	 * Mesma listagem de listaComPaginacaoNoParametro(), mas devolvendo um Slice.
+	 * 
+	 * O Page executa duas consultas por requisição: a página e um SELECT COUNT(*)
+	 * para calcular o total de registros e de páginas. Em uma tabela grande esse
+	 * COUNT custa quase o mesmo que a página. O Slice não faz o COUNT: ele apenas
+	 * informa se existe uma próxima página (atributo "last").
+	 * 
+	 * Quem precisar do total pode usar o endpoint /topicos/total, que responde em
+	 * O(1) à partir dos contadores mantidos em memória.
+	 * 
+	 * @param cursoNome
+	 * @param pageable
+	 * @return
+	 */
+	// http://localhost:8080/topicos/semContagem?page=0&size=3&sort=id,asc
+	@GetMapping("/semContagem")
+	@RespostaCondicional(Recurso.LISTA)
+	public Slice<TopicoResponseDTO> listaSemContagem(
+			@RequestParam(required = false, value = "cursoNome") String cursoNome,
+			@PageableDefault(sort = "id", direction = Direction.DESC, page = 0, size = 10) Pageable pageable) {
 
 		if (cursoNome == null)
-			topicos = topicoRepository.findAll(pageable);
-		else
-			topicos = topicoRepository.selecionarTopicosPeloNomeCurso(cursoNome, pageable);
+			return topicoRepository.selecionarTopicos(pageable);
+
+		return topicoRepository.selecionarFatiaDeTopicosPeloNomeCurso(cursoNome, pageable);
+	}
+
+	/**
+	 * Exporta todos os tópicos (ou os tópicos de um curso) em NDJSON: um JSON por
+	 * linha.
+	 * 
+	 * Ao invés de montar uma lista e devolvê-la (o que colocaria a tabela inteira
+	 * em memória), lemos os registros com um Stream do repository e escrevemos
+	 * cada um direto na resposta com o gerador de JSON do Jackson (JsonGenerator).
+	 * Assim o consumo de memória é o mesmo para 10 ou 10 milhões de tópicos.
+	 * 
+	 * O @Transactional é necessário porque o Stream mantém um cursor aberto no
+	 * banco enquanto é consumido.
+	 * 
+	 * @param cursoNome
+	 * @param response
+	 * @throws IOException
+	 */
+	// http://localhost:8080/topicos/export
+	// http://localhost:8080/topicos/export?cursoNome=Spring+Boot
+	@GetMapping(value = "/export", produces = NDJSON)
+	@RespostaCondicional(Recurso.LISTA)
+	@Transactional
+	public void exportar(@RequestParam(required = false, value = "cursoNome") String cursoNome,
+			HttpServletResponse response) throws IOException {
+
+		response.setContentType(NDJSON);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
 
-		return TopicoResponseDTO.converter(topicos);
+		JsonGenerator gerador = objectMapper.getFactory().createGenerator(response.getOutputStream());
+		gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // Quem fecha a resposta é o container
+
+		/*
+		 * SequenceWriter escreve vários JSON seguidos, separados por "\n". Sem o
+		 * FLUSH_AFTER_WRITE_VALUE o Jackson não força o envio a cada registro, apenas
+		 * quando o buffer enche.
+		 */
+		try (Stream<TopicoResponseDTO> topicos = cursoNome == null ? topicoRepository.exportarTopicos()
+				: topicoRepository.exportarTopicosPeloNomeCurso(cursoNome);
+				SequenceWriter escritor = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+						.withRootValueSeparator("\n").writeValues(gerador)) {
+
+			long total = 0;
+			Iterator<TopicoResponseDTO> iterator = topicos.iterator();
+			while (iterator.hasNext()) {
+				escritor.write(iterator.next());
+				total++;
+			}
+
+			if (total > 0)
+				gerador.writeRaw('\n'); // A última linha também termina com "\n"
+		}
+
+		gerador.close();
+	}
+
+	/**
+	 * Total de tópicos, geral ou de um curso, sem consultar o banco de dados.
+	 * 
+	 * Ver TopicoContadorService.
+	 */
+	// http://localhost:8080/topicos/total
+	// http://localhost:8080/topicos/total?cursoNome=Spring+Boot
+	@GetMapping("/total")
+	@RespostaCondicional(Recurso.LISTA)
+	public TopicoTotalResponseDTO total(@RequestParam(required = false, value = "cursoNome") String cursoNome) {
+
+		if (cursoNome == null)
+			return new TopicoTotalResponseDTO(null, topicoContadorService.total());
+
+		return new TopicoTotalResponseDTO(cursoNome, topicoContadorService.total(cursoNome));
+	}
+
+	/**
+	 * Busca textual no título e na mensagem dos tópicos, ordenada por relevância.
+	 * 
+	 * Os tópicos encontrados vêm do índice mantido em memória pelo
+	 * TopicoBuscaService; o banco é consultado apenas pelos ids da página pedida.
+	 * Acentos e maiúsculas são ignorados.
+	 * 
+	 * @param q        texto pesquisado
+	 * @param pageable
+	 * @return
+	 */
+	// http://localhost:8080/topicos/busca?q=duvida+projeto&page=0&size=10
+	@GetMapping("/busca")
+	@RespostaCondicional(Recurso.LISTA)
+	public Page<TopicoResponseDTO> buscar(@RequestParam("q") String q,
+			@PageableDefault(page = 0, size = 10) Pageable pageable) {
+		return topicoBuscaService.buscar(q, pageable);
 	}
 
 	// Ex.: http://localhost:8080/topicos/titulo?titulo=D%C3%BAvida
@@ -199,21 +463,49 @@ public class TopicoController {
 	 * Essa anotação deve ser utilizados nos métodos: cadastra, edição e remoção.
 	 * 
 	 * Dessa forma, as seleções (GET) sempre irão buscar os dados atualizados.
+	 * 
+	 * ATUALIZAÇÃO: apagar o cache inteiro a cada escrita fazia com que, com
+	 * escritas frequentes, o cache quase nunca fosse aproveitado. Por isso
+	 * o @CacheEvict foi substituído pelo ListaDeTopicosInvalidador, que recebe o
+	 * TopicoAlteradoEvent publicado abaixo e remove apenas as páginas afetadas.
 	 */
 	@PostMapping
 	@Transactional
-	@CacheEvict(value = "listaDeTopicosPorPagina", allEntries = true)
 	public ResponseEntity<TopicoResponseDTO> cadastrar(@RequestBody @Valid TopicoRequestDTO topicoRequestDTO,
 			UriComponentsBuilder uriBuilder) {
 
-		Topico topico = topicoRequestDTO.converter(cursoRepository);
+		Topico topico = topicoRequestDTO.converter(cursoCacheService);
 		topicoRepository.save(topico);
 
+		/*
+		 * Avisa quem mantém informações dos tópicos em memória (ex.:
+		 * TopicoContadorService). O evento só é entregue após o commit.
+		 */
+		publicador.publishEvent(TopicoAlteradoEvent.criado(topico));
+
 		URI uri = uriBuilder.path("/topicos/{id}").buildAndExpand(topico.getId()).toUri();
 
 		return ResponseEntity.created(uri).body(new TopicoResponseDTO(topico));
 	}
 
+	/**
+	 * Importação de tópicos em massa, em NDJSON (um tópico por linha) ou em um
+	 * array JSON, no mesmo formato do cadastro.
+	 * 
+	 * O corpo da requisição é lido aos poucos e os tópicos são gravados em lotes,
+	 * cada lote em uma transação. A resposta é um relatório com os registros
+	 * importados e os erros de validação de cada lote. Ver
+	 * TopicoImportacaoService.
+	 * 
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 */
+	@PostMapping(value = "/importacao", consumes = { NDJSON, MediaType.APPLICATION_JSON_VALUE })
+	public ImportacaoResponseDTO importar(HttpServletRequest request) throws IOException {
+		return topicoImportacaoService.importar(request.getInputStream());
+	}
+
 	/**
 	 * Retorna os detalhes de um tópico.
 	 * 
@@ -235,29 +527,59 @@ public class TopicoController {
 	 * 
 	 * Pelo visto, não é carregamento LAZY.
 	 * 
+	 * Na verdade as respostas são LAZY, e o autor de cada resposta seria carregado
+	 * com uma consulta à parte (N+1). Por isso usamos carregarDetalhe(id), que
+	 * traz o tópico e todos os relacionamentos usados no detalhe com JOIN FETCH
+	 * (ver TopicoRepository).
+	 * 
+	 * O detalhe é lido muito mais vezes do que é alterado, por isso fica no cache
+	 * "detalheDeTopico", com o id como chave. Somente respostas 200 são guardadas
+	 * (unless), para que um tópico inexistente não fique em cache. Quando o
+	 * tópico é alterado, apenas a entrada desse id é removida (ver
+	 * DetalheDeTopicoInvalidador), e uma leitura que estava em andamento não grava
+	 * o detalhe antigo de volta (ver CacheVersionado).
+	 * 
+	 * A resposta leva o ETag com a versão do tópico. Com um If-None-Match igual a
+	 * ela, o Spring responde 304 sem corpo; com o detalhe em cache, sem nenhuma
+	 * consulta. O Last-Modified e o If-Modified-Since são tratados antes, no
+	 * TopicoCondicionalInterceptor.
+	 * 
 	 * @param id
 	 */
 	// Ex.: http://localhost:8080/topicos/4
 	@GetMapping("/{id}")
+	@RespostaCondicional(Recurso.DETALHE)
+	@Cacheable(value = "detalheDeTopico", key = "#id", unless = "#result.statusCodeValue != 200")
 	public ResponseEntity<TopicoDetalheResponseDTO> detalhar(@PathVariable("id") Long id) {
-		Optional<Topico> optional = topicoRepository.findById(id);
-		if (optional.isPresent()) { // Verifica antes se o registro existe para poder ser detalhá-lo
-			return ResponseEntity.ok(new TopicoDetalheResponseDTO(optional.get()));
-		}
 
-		return ResponseEntity.notFound().build(); // Retorna um 404
+		// Requisições simultâneas para o mesmo id compartilham uma única consulta
+		return carregamentoUnico.executar("detalheDeTopico", id, () -> {
+			Optional<Topico> optional = topicoRepository.carregarDetalhe(id);
+			if (optional.isPresent()) { // Verifica antes se o registro existe para poder ser detalhá-lo
+				TopicoDetalheResponseDTO detalhe = new TopicoDetalheResponseDTO(optional.get());
+
+				// O ETag é a versão do tópico, a mesma que o PATCH espera no If-Match
+				return ResponseEntity.ok().eTag("\"" + detalhe.getVersao() + "\"").body(detalhe);
+			}
+
+			return ResponseEntity.<TopicoDetalheResponseDTO>notFound().build(); // Retorna um 404
+		});
 	}
 
 	/**
 	 * Faz a atualização de um tópico.
 	 * 
+	 * O tópico tem @Version, então o UPDATE gerado no commit só altera o registro
+	 * se ele ainda estiver na versão carregada. Se um PATCH ou uma alteração em
+	 * lote chegar antes, a JPA lança ObjectOptimisticLockingFailureException, que
+	 * vira um 409 (Conflict) no ErroConcorrenciaHandler.
+	 * 
 	 * @param id
 	 * @return
 	 */
 	// Ex.: http://localhost:8080/topicos/4
 	@PutMapping("/{id}")
 	@Transactional
-	@CacheEvict(value = "listaDeTopicosPorPagina", allEntries = true)
 	public ResponseEntity<TopicoResponseDTO> atualizar(@PathVariable("id") Long id,
 			@RequestBody @Valid TopicoAtualizarRequestDTO topicoAtualizarRequestDTO) {
 
@@ -280,6 +602,7 @@ public class TopicoController {
 		Optional<Topico> optional = topicoRepository.findById(id);
 		if (optional.isPresent()) { // Verifica antes se o registro existe para poder alterá-lo
 			Topico topico = topicoAtualizarRequestDTO.atualizar(id, topicoRepository);
+			publicador.publishEvent(TopicoAlteradoEvent.atualizado(topico));
 
 			/*
 			 * Retornando um ok (status 200) com o tópico atualizado
@@ -290,21 +613,123 @@ public class TopicoController {
 		return ResponseEntity.notFound().build(); // Retorna um 404
 	}
 
+	/**
+	 * Alteração parcial de um tópico: apenas os campos informados no corpo são
+	 * alterados.
+	 * 
+	 * O PUT carrega o tópico e depende do dirty checking da JPA para gerar o
+	 * UPDATE. Aqui a alteração é um único UPDATE, sem carregar o tópico (depois
+	 * dele, uma leitura pela chave primária traz apenas o id do curso, ou a
+	 * versão atual se nada foi alterado), com controle de concorrência otimista:
+	 * 
+	 * <ul>
+	 * <li>o cabeçalho If-Match é obrigatório e deve conter a versão do tópico
+	 * (atributo "versao" do detalhe). Sem ele, 428 (Precondition Required);</li>
+	 * <li>o UPDATE só altera o tópico se ele ainda estiver nessa versão. Se
+	 * outra requisição o alterou antes, nada é sobrescrito e devolvemos 409
+	 * (Conflict): o cliente deve buscar o tópico de novo e reaplicar a
+	 * alteração.</li>
+	 * </ul>
+	 * 
+	 * A resposta traz a nova versão, para a próxima alteração.
+	 * 
+	 * @param id
+	 * @param ifMatch
+	 * @param topicoPatchRequestDTO
+	 * @return
+	 */
+	// Ex.: curl -X PATCH -H 'If-Match: "0"' -d '{"status":"FECHADO"}' http://localhost:8080/topicos/4
+	@PatchMapping("/{id}")
+	@Transactional
+	public ResponseEntity<TopicoVersaoResponseDTO> atualizarParcialmente(@PathVariable("id") Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestBody @Valid TopicoPatchRequestDTO topicoPatchRequestDTO) {
+
+		if (ifMatch == null)
+			return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+
+		Long versao = versaoDoIfMatch(ifMatch);
+		if (versao == null)
+			return ResponseEntity.badRequest().build();
+
+		AtualizacaoParcial atualizacao = topicoRepository.atualizarParcialmente(id, versao,
+				topicoPatchRequestDTO.getTitulo(), topicoPatchRequestDTO.getMensagem(),
+				topicoPatchRequestDTO.getStatus());
+
+		if (atualizacao.getResultado() == AtualizacaoParcial.Resultado.NAO_ENCONTRADO)
+			return ResponseEntity.notFound().build(); // Retorna um 404
+
+		if (atualizacao.getResultado() == AtualizacaoParcial.Resultado.CONFLITO)
+			return ResponseEntity.status(HttpStatus.CONFLICT).build(); // Está em outra versão
+
+		// O nome do curso é necessário para os caches das listagens por curso
+		Curso curso = cursoCacheService.buscarPeloId(atualizacao.getCursoId());
+		publicador.publishEvent(TopicoAlteradoEvent.atualizado(id, curso != null ? curso.getNome() : null));
+
+		return ResponseEntity.ok(new TopicoVersaoResponseDTO(id, versao + 1));
+	}
+
+	/*
+	 * Aceita If-Match: "3", W/"3" ou 3. Devolve null se não for uma versão.
+	 */
+	private static Long versaoDoIfMatch(String ifMatch) {
+		String valor = ifMatch.trim();
+
+		if (valor.startsWith("W/"))
+			valor = valor.substring(2);
+
+		if (valor.length() > 1 && valor.startsWith("\"") && valor.endsWith("\""))
+			valor = valor.substring(1, valor.length() - 1);
+
+		try {
+			return Long.valueOf(valor);
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
 	/**
 	 * Remove o tópico por id
+	 * 
+	 * Antes eram feitas duas leituras do tópico (findById e deleteById) antes do
+	 * DELETE, e o tópico com respostas não podia ser removido. Agora a remoção
+	 * usa o mesmo caminho da remoção em lote: as respostas e o tópico são
+	 * removidos com um DELETE cada (ver TopicoLoteService).
 	 */
 	// Ex.: http://localhost:8080/topicos/4
 	@DeleteMapping("/{id}")
-	@Transactional
-	@CacheEvict(value = "listaDeTopicosPorPagina", allEntries = true)
 	public ResponseEntity<?> remover(@PathVariable("id") Long id) {
 
-		Optional<Topico> optional = topicoRepository.findById(id);
-		if (optional.isPresent()) { // Verifica antes se o registro existe para poder ser excluído
-			topicoRepository.deleteById(id);
+		if (topicoLoteService.remover(TopicoLoteRequestDTO.doTopico(id)) > 0)
 			return ResponseEntity.ok().build();
-		}
 
 		return ResponseEntity.notFound().build(); // Retorna um 404
 	}
+
+	/**
+	 * Remove, de uma vez, todos os tópicos do filtro (ids, curso e/ou período de
+	 * criação), junto com suas respostas.
+	 * 
+	 * Ex.: {"cursoNome": "HTML 5", "criadoAte": "2019-06-01T00:00:00"}
+	 * 
+	 * @param filtro
+	 * @return quantidade de tópicos removidos
+	 */
+	@PostMapping("/lote/remocao")
+	public TopicoLoteResponseDTO removerEmLote(@RequestBody @Valid TopicoLoteRequestDTO filtro) {
+		return new TopicoLoteResponseDTO(topicoLoteService.remover(filtro));
+	}
+
+	/**
+	 * Altera, de uma vez, o status de todos os tópicos do filtro.
+	 * 
+	 * Ex.: {"ids": [1, 2, 3], "status": "FECHADO"}
+	 * 
+	 * @param filtro
+	 * @return quantidade de tópicos alterados
+	 */
+	@PostMapping("/lote/status")
+	public TopicoLoteResponseDTO alterarStatusEmLote(@RequestBody @Valid TopicoLoteStatusRequestDTO filtro) {
+		return new TopicoLoteResponseDTO(topicoLoteService.alterarStatus(filtro));
+	}
 }
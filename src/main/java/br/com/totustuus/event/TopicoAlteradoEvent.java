@@ -0,0 +1,148 @@
+package br.com.totustuus.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.totustuus.model.Topico;
+
+/**
+ * Evento publicado pelo TopicoController sempre que um ou mais tópicos são
+ * criados, alterados ou removidos.
+ *
+ * Quem precisa reagir a essas alterações (contadores, caches, etc.) não precisa
+ * conhecer o controller: basta criar um método anotado
+ * com @TransactionalEventListener recebendo esse evento. Com essa anotação o
+ * Spring só entrega o evento depois do commit da transação, ou seja, se a
+ * transação falhar ninguém fica com informação que não existe no banco.
+ *
+ * Os ids alterados são agrupados pelo nome do curso, já que boa parte das
+ * informações mantidas em memória são separadas por curso.
+ *
+ * Uma operação em lote por curso ou período (ver TopicoLoteService) pode
+ * alterar milhares de tópicos, e o evento não traz os ids: apenas a quantidade
+ * de tópicos de cada curso afetado, com isEmLote() verdadeiro. Quem mantém
+ * informação por tópico deve, nesse caso, descartar ou recarregar tudo o que for
+ * do tipo do evento. Quem mantém apenas totais (ver TopicoContadorService) usa
+ * getQuantidadePorCurso(), preenchido nos dois casos.
+ *
+ * @author thiago.machado
+ *
+ */
+public class TopicoAlteradoEvent {
+
+	public enum Tipo {
+		CRIADO, ATUALIZADO, REMOVIDO
+	}
+
+	private final Tipo tipo;
+	private final Map<String, Set<Long>> idsPorCurso;
+	private final Map<String, Long> quantidadePorCurso;
+	private final boolean emLote;
+
+	public TopicoAlteradoEvent(Tipo tipo, Map<String, Set<Long>> idsPorCurso) {
+		this.tipo = tipo;
+		this.idsPorCurso = Collections.unmodifiableMap(idsPorCurso);
+
+		Map<String, Long> quantidadePorCurso = new HashMap<>();
+		for (Map.Entry<String, Set<Long>> entrada : idsPorCurso.entrySet())
+			quantidadePorCurso.put(entrada.getKey(), (long) entrada.getValue().size());
+		this.quantidadePorCurso = Collections.unmodifiableMap(quantidadePorCurso);
+
+		this.emLote = false;
+	}
+
+	private TopicoAlteradoEvent(Tipo tipo, Map<String, Long> quantidadePorCurso, boolean emLote) {
+		this.tipo = tipo;
+		this.idsPorCurso = Collections.emptyMap();
+		this.quantidadePorCurso = Collections.unmodifiableMap(new HashMap<>(quantidadePorCurso));
+		this.emLote = emLote;
+	}
+
+	/*
+	 * Tópicos dos cursos informados alterados em lote, sem a lista de ids: apenas
+	 * quantos tópicos de cada curso.
+	 */
+	public static TopicoAlteradoEvent emLote(Tipo tipo, Map<String, Long> quantidadePorCurso) {
+		return new TopicoAlteradoEvent(tipo, quantidadePorCurso, true);
+	}
+
+	public static TopicoAlteradoEvent criado(Topico topico) {
+		return de(Tipo.CRIADO, topico);
+	}
+
+	public static TopicoAlteradoEvent atualizado(Topico topico) {
+		return de(Tipo.ATUALIZADO, topico);
+	}
+
+	/*
+	 * Usado quando o tópico foi alterado sem ser carregado (ex.: PATCH).
+	 */
+	public static TopicoAlteradoEvent atualizado(Long id, String cursoNome) {
+		Map<String, Set<Long>> idsPorCurso = new HashMap<>();
+		idsPorCurso.put(cursoNome, Collections.singleton(id));
+		return new TopicoAlteradoEvent(Tipo.ATUALIZADO, idsPorCurso);
+	}
+
+	public static TopicoAlteradoEvent removido(Topico topico) {
+		return de(Tipo.REMOVIDO, topico);
+	}
+
+	public static TopicoAlteradoEvent criados(Collection<Topico> topicos) {
+		Map<String, Set<Long>> idsPorCurso = new HashMap<>();
+		for (Topico topico : topicos) {
+			String cursoNome = topico.getCurso() != null ? topico.getCurso().getNome() : null;
+			idsPorCurso.computeIfAbsent(cursoNome, (curso) -> new HashSet<>()).add(topico.getId());
+		}
+		return new TopicoAlteradoEvent(Tipo.CRIADO, idsPorCurso);
+	}
+
+	private static TopicoAlteradoEvent de(Tipo tipo, Topico topico) {
+		String cursoNome = topico.getCurso() != null ? topico.getCurso().getNome() : null;
+		Map<String, Set<Long>> idsPorCurso = new HashMap<>();
+		idsPorCurso.put(cursoNome, Collections.singleton(topico.getId()));
+		return new TopicoAlteradoEvent(tipo, idsPorCurso);
+	}
+
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	/**
+	 * Ids alterados agrupados pelo nome do curso. Tópicos sem curso ficam na chave
+	 * null. Vazio quando isEmLote().
+	 */
+	public Map<String, Set<Long>> getIdsPorCurso() {
+		return idsPorCurso;
+	}
+
+	public Set<String> getCursos() {
+		return quantidadePorCurso.keySet();
+	}
+
+	/**
+	 * Quantidade de tópicos alterados de cada curso, com ou sem os ids.
+	 */
+	public Map<String, Long> getQuantidadePorCurso() {
+		return quantidadePorCurso;
+	}
+
+	/**
+	 * Verdadeiro quando os ids não são conhecidos: apenas getCursos() é
+	 * preenchido.
+	 */
+	public boolean isEmLote() {
+		return emLote;
+	}
+
+	public Set<Long> getIds() {
+		Set<Long> ids = new HashSet<>();
+		for (Collection<Long> idsDoCurso : idsPorCurso.values())
+			ids.addAll(idsDoCurso);
+		return ids;
+	}
+
+}
@@ -10,14 +10,33 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
-
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+/*
+ * Os índices abaixo atendem a paginação por cursor (ver TopicoCursor): com eles
+ * o banco encontra o ponto de partida de qualquer página sem percorrer os
+ * registros anteriores.
+ */
 @Entity
+@Table(indexes = { @Index(name = "idx_topico_data_criacao_id", columnList = "dataCriacao, id"),
+		@Index(name = "idx_topico_curso_data_criacao_id", columnList = "curso_id, dataCriacao, id") })
 public class Topico {
 
+	/*
+	 * Com IDENTITY o Hibernate só descobre o id depois do INSERT, e por isso não
+	 * consegue agrupar os INSERTs em lote (JDBC batch). Com uma SEQUENCE o id é
+	 * conhecido antes: o allocationSize reserva 50 ids a cada chamada da sequence
+	 * (otimizador pooled-lo, ver application.properties), e os INSERTs são
+	 * enviados ao banco de 50 em 50 (hibernate.jdbc.batch_size).
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "topico_seq")
+	@SequenceGenerator(name = "topico_seq", sequenceName = "topico_seq", allocationSize = 50)
 	private Long id;
 	private String titulo;
 	private String mensagem;
@@ -39,6 +58,15 @@ public class Topico {
 	@OneToMany(mappedBy = "topico")
 	private List<Resposta> respostas = new ArrayList<>();
 
+	/*
+	 * Controle de concorrência otimista: a cada UPDATE o Hibernate incrementa a
+	 * versão e inclui "WHERE versao = ?" no comando. Se outra transação alterou o
+	 * tópico antes, nenhum registro é atualizado e a alteração é rejeitada, ao
+	 * invés de sobrescrever a alteração da outra transação.
+	 */
+	@Version
+	private Long versao;
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -128,4 +156,8 @@ public class Topico {
 		this.respostas = respostas;
 	}
 
+	public Long getVersao() {
+		return versao;
+	}
+
 }
@@ -10,6 +10,9 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -42,8 +45,13 @@ public class Usuario implements UserDetails {
 	 * banco de dados, ele não carrega a lista, porque é lazy, só que eu vou colocar
 	 * o fetch para ser Eager, porque quando eu carregar o usuário já carrego a
 	 * lista de perfis, porque vou precisar dos perfis de acesso do usuário.
+	 * 
+	 * O FetchMode.SUBSELECT faz com que, ao carregar vários usuários de uma vez
+	 * (ex.: os autores das respostas de um tópico), os perfis de todos eles sejam
+	 * buscados em uma única consulta, e não uma consulta por usuário.
 	 */
 	@ManyToMany(fetch = FetchType.EAGER)
+	@Fetch(FetchMode.SUBSELECT)
 	private List<Perfil> perfis;
 
 	@Override
@@ -0,0 +1,31 @@
+package br.com.totustuus.model.dto;
+
+/**
+ * Erro de validação de um registro da importação. "registro" é a posição do
+ * registro no arquivo recebido, começando em 1.
+ */
+public class ImportacaoErroDTO {
+
+	private long registro;
+	private String campo;
+	private String erro;
+
+	public ImportacaoErroDTO(long registro, String campo, String erro) {
+		this.registro = registro;
+		this.campo = campo;
+		this.erro = erro;
+	}
+
+	public long getRegistro() {
+		return registro;
+	}
+
+	public String getCampo() {
+		return campo;
+	}
+
+	public String getErro() {
+		return erro;
+	}
+
+}
@@ -0,0 +1,37 @@
+package br.com.totustuus.model.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de um lote da importação. Cada lote é gravado em uma transação
+ * própria: os tópicos importados de um lote continuam gravados mesmo que um
+ * lote seguinte falhe.
+ */
+public class ImportacaoLoteDTO {
+
+	private int numero;
+	private int importados;
+	private List<ImportacaoErroDTO> erros = new ArrayList<>();
+
+	public ImportacaoLoteDTO(int numero) {
+		this.numero = numero;
+	}
+
+	public int getNumero() {
+		return numero;
+	}
+
+	public int getImportados() {
+		return importados;
+	}
+
+	public void setImportados(int importados) {
+		this.importados = importados;
+	}
+
+	public List<ImportacaoErroDTO> getErros() {
+		return erros;
+	}
+
+}
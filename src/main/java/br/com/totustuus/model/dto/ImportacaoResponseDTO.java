@@ -0,0 +1,82 @@
+package br.com.totustuus.model.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relatório da importação de tópicos (POST /topicos/importacao).
+ * 
+ * "erro" só é preenchido quando o arquivo não pôde ser lido até o fim (ex.:
+ * JSON mal formado) ou um lote não pôde ser gravado. Nesse caso, os lotes
+ * anteriores ao erro já foram gravados e continuam no relatório.
+ * 
+ * Apenas os primeiros erros de validação são listados nos lotes (ver
+ * adicionarErro()). Os demais são contados em "errosOmitidos", para que um
+ * arquivo grande e todo inválido não gere uma resposta do mesmo tamanho.
+ */
+public class ImportacaoResponseDTO {
+
+	private long recebidos;
+	private long importados;
+	private long rejeitados;
+	private String erro;
+	private long errosOmitidos;
+	private List<ImportacaoLoteDTO> lotes = new ArrayList<>();
+
+	// Sem getter: não faz parte do JSON
+	private int errosListados;
+
+	public long getRecebidos() {
+		return recebidos;
+	}
+
+	public void setRecebidos(long recebidos) {
+		this.recebidos = recebidos;
+	}
+
+	public long getImportados() {
+		return importados;
+	}
+
+	public void setImportados(long importados) {
+		this.importados = importados;
+	}
+
+	public long getRejeitados() {
+		return rejeitados;
+	}
+
+	public void setRejeitados(long rejeitados) {
+		this.rejeitados = rejeitados;
+	}
+
+	public String getErro() {
+		return erro;
+	}
+
+	public void setErro(String erro) {
+		this.erro = erro;
+	}
+
+	public long getErrosOmitidos() {
+		return errosOmitidos;
+	}
+
+	public List<ImportacaoLoteDTO> getLotes() {
+		return lotes;
+	}
+
+	/**
+	 * Lista o erro no lote enquanto o relatório tiver menos de "maximo" erros
+	 * listados. Depois disso, o erro é apenas contado.
+	 */
+	public void adicionarErro(ImportacaoLoteDTO lote, ImportacaoErroDTO erroDoRegistro, int maximo) {
+		if (errosListados < maximo) {
+			lote.getErros().add(erroDoRegistro);
+			errosListados++;
+		} else {
+			errosOmitidos++;
+		}
+	}
+
+}
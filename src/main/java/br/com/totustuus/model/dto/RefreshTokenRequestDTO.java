@@ -0,0 +1,18 @@
+package br.com.totustuus.model.dto;
+
+import javax.validation.constraints.NotBlank;
+
+public class RefreshTokenRequestDTO {
+
+	@NotBlank
+	private String refreshToken;
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public void setRefreshToken(String refreshToken) {
+		this.refreshToken = refreshToken;
+	}
+
+}
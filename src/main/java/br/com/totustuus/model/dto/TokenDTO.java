@@ -4,10 +4,12 @@ public class TokenDTO {
 
 	private String token;
 	private String tipo;
+	private String refreshToken;
 
-	public TokenDTO(String token, String tipo) {
+	public TokenDTO(String token, String tipo, String refreshToken) {
 		this.token = token;
 		this.tipo = tipo;
+		this.refreshToken = refreshToken;
 	}
 
 	public String getToken() {
@@ -18,4 +20,11 @@ public class TokenDTO {
 		return tipo;
 	}
 
+	/**
+	 * Usado em /auth/refresh para obter um novo token quando o atual expirar.
+	 */
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
 }
@@ -0,0 +1,69 @@
+package br.com.totustuus.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Representa a posição de um tópico na paginação por cursor (keyset).
+ *
+ * Ao invés de dizer ao banco "pule N registros" (OFFSET), guardamos a chave do
+ * último registro entregue, formada por (dataCriacao, id), e pedimos os
+ * próximos registros "depois" dela. Dessa forma o banco usa o índice para ir
+ * direto ao ponto, e a página 10.000 custa o mesmo que a página 1.
+ *
+ * Para o cliente o cursor é opaco: apenas uma String em Base64 que ele devolve
+ * no parâmetro "after" da próxima requisição.
+ *
+ * @author thiago.machado
+ *
+ */
+public class TopicoCursor {
+
+	private static final String SEPARADOR = "|";
+
+	private final LocalDateTime dataCriacao;
+	private final Long id;
+
+	public TopicoCursor(LocalDateTime dataCriacao, Long id) {
+		this.dataCriacao = dataCriacao;
+		this.id = id;
+	}
+
+	public LocalDateTime getDataCriacao() {
+		return dataCriacao;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String codificar() {
+		String valor = dataCriacao.toString() + SEPARADOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Converte o cursor recebido do cliente.
+	 *
+	 * @param cursor
+	 * @return o cursor decodificado, ou null caso o valor recebido não seja um
+	 *         cursor válido
+	 */
+	public static TopicoCursor decodificar(String cursor) {
+		try {
+			String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int posicao = valor.lastIndexOf(SEPARADOR);
+
+			if (posicao < 0)
+				return null;
+
+			return new TopicoCursor(LocalDateTime.parse(valor.substring(0, posicao)),
+					Long.valueOf(valor.substring(posicao + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException ex) {
+			return null;
+		}
+	}
+
+}
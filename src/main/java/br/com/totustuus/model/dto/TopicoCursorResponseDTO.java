@@ -0,0 +1,30 @@
+package br.com.totustuus.model.dto;
+
+import java.util.List;
+
+/**
+ * Resposta da listagem por cursor.
+ *
+ * Diferente do Page, não temos total de registros nem total de páginas (isso
+ * exigiria um COUNT). Temos apenas os tópicos e o cursor para buscar a próxima
+ * página. Quando "proximo" for null, não existem mais registros.
+ */
+public class TopicoCursorResponseDTO {
+
+	private List<TopicoResponseDTO> topicos;
+	private String proximo;
+
+	public TopicoCursorResponseDTO(List<TopicoResponseDTO> topicos, String proximo) {
+		this.topicos = topicos;
+		this.proximo = proximo;
+	}
+
+	public List<TopicoResponseDTO> getTopicos() {
+		return topicos;
+	}
+
+	public String getProximo() {
+		return proximo;
+	}
+
+}
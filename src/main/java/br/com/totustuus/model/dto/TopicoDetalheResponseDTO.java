@@ -15,6 +15,7 @@ public class TopicoDetalheResponseDTO {
 	private String mensagem;
 	private LocalDateTime dataCriacao;
 	private StatusTopico status;
+	private Long versao;
 	private String usuario;
 	private List<RespostaResponseDTO> respostas;
 
@@ -24,6 +25,7 @@ public class TopicoDetalheResponseDTO {
 		mensagem = topico.getMensagem();
 		dataCriacao = topico.getDataCriacao();
 		status = topico.getStatus();
+		versao = topico.getVersao();
 		usuario = topico.getAutor().getNome();
 		respostas = new ArrayList<RespostaResponseDTO>();
 		
@@ -52,6 +54,10 @@ public class TopicoDetalheResponseDTO {
 		return status;
 	}
 
+	public Long getVersao() {
+		return versao;
+	}
+
 	public String getUsuario() {
 		return usuario;
 	}
@@ -0,0 +1,77 @@
+package br.com.totustuus.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Size;
+
+import br.com.totustuus.config.validation.CursoExistente;
+
+/**
+ * Filtros de uma operação em lote (ver TopicoLoteService). Os filtros
+ * informados são combinados (E), e ao menos um deles é obrigatório: não é
+ * possível alterar todos os tópicos de uma vez por engano.
+ * 
+ * "criadoDe" é inclusivo e "criadoAte" é exclusivo.
+ */
+public class TopicoLoteRequestDTO {
+
+	@Size(max = 10000)
+	private List<Long> ids;
+
+	@CursoExistente
+	private String cursoNome;
+
+	private LocalDateTime criadoDe;
+	private LocalDateTime criadoAte;
+
+	public static TopicoLoteRequestDTO doTopico(Long id) {
+		TopicoLoteRequestDTO filtro = new TopicoLoteRequestDTO();
+		filtro.setIds(Collections.singletonList(id));
+		return filtro;
+	}
+
+	/*
+	 * O Bean Validation chama os métodos "is" anotados com @AssertTrue, assim
+	 * conseguimos validar mais de um atributo ao mesmo tempo.
+	 */
+	@AssertTrue(message = "informe ao menos um filtro: ids, cursoNome, criadoDe ou criadoAte")
+	public boolean isFiltroInformado() {
+		return (ids != null && !ids.isEmpty()) || cursoNome != null || criadoDe != null || criadoAte != null;
+	}
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public String getCursoNome() {
+		return cursoNome;
+	}
+
+	public void setCursoNome(String cursoNome) {
+		this.cursoNome = cursoNome;
+	}
+
+	public LocalDateTime getCriadoDe() {
+		return criadoDe;
+	}
+
+	public void setCriadoDe(LocalDateTime criadoDe) {
+		this.criadoDe = criadoDe;
+	}
+
+	public LocalDateTime getCriadoAte() {
+		return criadoAte;
+	}
+
+	public void setCriadoAte(LocalDateTime criadoAte) {
+		this.criadoAte = criadoAte;
+	}
+
+}
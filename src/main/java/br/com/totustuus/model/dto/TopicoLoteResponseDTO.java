@@ -0,0 +1,15 @@
+package br.com.totustuus.model.dto;
+
+public class TopicoLoteResponseDTO {
+
+	private int afetados;
+
+	public TopicoLoteResponseDTO(int afetados) {
+		this.afetados = afetados;
+	}
+
+	public int getAfetados() {
+		return afetados;
+	}
+
+}
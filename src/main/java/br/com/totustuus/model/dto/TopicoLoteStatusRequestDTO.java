@@ -0,0 +1,23 @@
+package br.com.totustuus.model.dto;
+
+import javax.validation.constraints.NotNull;
+
+import br.com.totustuus.model.StatusTopico;
+
+/**
+ * Filtros de uma alteração de status em lote, mais o novo status.
+ */
+public class TopicoLoteStatusRequestDTO extends TopicoLoteRequestDTO {
+
+	@NotNull
+	private StatusTopico status;
+
+	public StatusTopico getStatus() {
+		return status;
+	}
+
+	public void setStatus(StatusTopico status) {
+		this.status = status;
+	}
+
+}
@@ -0,0 +1,53 @@
+package br.com.totustuus.model.dto;
+
+import javax.validation.constraints.AssertTrue;
+
+import org.hibernate.validator.constraints.Length;
+
+import br.com.totustuus.model.StatusTopico;
+
+/**
+ * Alteração parcial de um tópico (PATCH): apenas os campos informados são
+ * alterados. Diferente do TopicoAtualizarRequestDTO, nenhum campo é
+ * obrigatório, mas ao menos um precisa ser informado.
+ */
+public class TopicoPatchRequestDTO {
+
+	@Length(min = 5, max = 50)
+	private String titulo;
+
+	@Length(min = 15, max = 255)
+	private String mensagem;
+
+	private StatusTopico status;
+
+	@AssertTrue(message = "informe ao menos um campo: titulo, mensagem ou status")
+	public boolean isCampoInformado() {
+		return titulo != null || mensagem != null || status != null;
+	}
+
+	public String getTitulo() {
+		return titulo;
+	}
+
+	public void setTitulo(String titulo) {
+		this.titulo = titulo;
+	}
+
+	public String getMensagem() {
+		return mensagem;
+	}
+
+	public void setMensagem(String mensagem) {
+		this.mensagem = mensagem;
+	}
+
+	public StatusTopico getStatus() {
+		return status;
+	}
+
+	public void setStatus(StatusTopico status) {
+		this.status = status;
+	}
+
+}
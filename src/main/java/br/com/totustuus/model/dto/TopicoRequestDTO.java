@@ -5,8 +5,9 @@ import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.Length;
 
+import br.com.totustuus.config.validation.CursoExistente;
 import br.com.totustuus.model.Topico;
-import br.com.totustuus.repository.CursoRepository;
+import br.com.totustuus.service.CursoCacheService;
 
 /**
  * POJO resnposável por armazenar as informações recebidas.
@@ -37,6 +38,7 @@ public class TopicoRequestDTO {
 	@NotNull
 	@NotEmpty
 	@Length(min = 5, max = 15)
+	@CursoExistente
 	private String cursoNome;
 
 	public String getTitulo() {
@@ -63,12 +65,16 @@ public class TopicoRequestDTO {
 		this.cursoNome = cursoNome;
 	}
 
-	public Topico converter(CursoRepository cursoRepository) {
+	/*
+	 * O curso vem do CursoCacheService, sem consultar o banco. O @CursoExistente
+	 * já garantiu que ele existe.
+	 */
+	public Topico converter(CursoCacheService cursoCacheService) {
 
 		Topico topico = new Topico();
 		topico.setTitulo(titulo);
 		topico.setMensagem(mensagem);
-		topico.setCurso(cursoRepository.findByNome(cursoNome));
+		topico.setCurso(cursoCacheService.buscarPeloNome(cursoNome));
 
 		return topico;
 	}
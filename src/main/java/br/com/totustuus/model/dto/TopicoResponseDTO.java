@@ -1,8 +1,6 @@
 package br.com.totustuus.model.dto;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
 
@@ -31,6 +29,18 @@ public class TopicoResponseDTO {
 		dataCriacao = topico.getDataCriacao();
 	}
 
+	/*
+	 * Construtor usado pelas consultas com projeção do TopicoRepository ("SELECT
+	 * new ..."). Dessa forma a JPA monta o DTO direto das colunas, sem carregar a
+	 * entidade Topico.
+	 */
+	public TopicoResponseDTO(Long id, String titulo, String mensagem, LocalDateTime dataCriacao) {
+		this.id = id;
+		this.titulo = titulo;
+		this.mensagem = mensagem;
+		this.dataCriacao = dataCriacao;
+	}
+
 	public Long getId() {
 		return id;
 	}
@@ -57,4 +67,5 @@ public class TopicoResponseDTO {
 		return topicoLista.map((topico) -> new TopicoResponseDTO(topico));
 	}
 
+
 }
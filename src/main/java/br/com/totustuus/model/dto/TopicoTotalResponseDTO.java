@@ -0,0 +1,21 @@
+package br.com.totustuus.model.dto;
+
+public class TopicoTotalResponseDTO {
+
+	private String cursoNome;
+	private long total;
+
+	public TopicoTotalResponseDTO(String cursoNome, long total) {
+		this.cursoNome = cursoNome;
+		this.total = total;
+	}
+
+	public String getCursoNome() {
+		return cursoNome;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+}
@@ -0,0 +1,25 @@
+package br.com.totustuus.model.dto;
+
+/**
+ * Resposta do PATCH: o id e a nova versão do tópico, que deve ser enviada no
+ * If-Match da próxima alteração.
+ */
+public class TopicoVersaoResponseDTO {
+
+	private Long id;
+	private Long versao;
+
+	public TopicoVersaoResponseDTO(Long id, Long versao) {
+		this.id = id;
+		this.versao = versao;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Long getVersao() {
+		return versao;
+	}
+
+}
@@ -0,0 +1,45 @@
+package br.com.totustuus.repository;
+
+/**
+ * Resultado do TopicoRepositoryCustom.atualizarParcialmente(): se o tópico foi
+ * alterado e, nesse caso, o id do seu curso. O nome do curso, necessário para o
+ * TopicoAlteradoEvent, vem do CursoCacheService.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class AtualizacaoParcial {
+
+	public enum Resultado {
+		ALTERADO, CONFLITO, NAO_ENCONTRADO
+	}
+
+	private final Resultado resultado;
+	private final Long cursoId;
+
+	private AtualizacaoParcial(Resultado resultado, Long cursoId) {
+		this.resultado = resultado;
+		this.cursoId = cursoId;
+	}
+
+	public static AtualizacaoParcial alterado(Long cursoId) {
+		return new AtualizacaoParcial(Resultado.ALTERADO, cursoId);
+	}
+
+	public static AtualizacaoParcial conflito() {
+		return new AtualizacaoParcial(Resultado.CONFLITO, null);
+	}
+
+	public static AtualizacaoParcial naoEncontrado() {
+		return new AtualizacaoParcial(Resultado.NAO_ENCONTRADO, null);
+	}
+
+	public Resultado getResultado() {
+		return resultado;
+	}
+
+	public Long getCursoId() {
+		return cursoId;
+	}
+
+}
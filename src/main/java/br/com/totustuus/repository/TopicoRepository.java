@@ -1,14 +1,23 @@
 package br.com.totustuus.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import br.com.totustuus.model.Topico;
+import br.com.totustuus.model.dto.TopicoResponseDTO;
 
 /**
  * Normalmente, as classes que são gerenciadas pelo Spring tem que ter um @.
@@ -38,7 +47,7 @@ import br.com.totustuus.model.Topico;
  * @author thiago.machado
  *
  */
-public interface TopicoRepository extends JpaRepository<Topico, Long> {
+public interface TopicoRepository extends JpaRepository<Topico, Long>, TopicoRepositoryCustom {
 
 	/*
 	 * O SpringData tem um padrão de nomenclatura. Se você seguir esse padrão, ele
@@ -65,4 +74,115 @@ public interface TopicoRepository extends JpaRepository<Topico, Long> {
 	@Query("SELECT t FROM Topico t WHERE t.curso.nome = :cursoNome")
 	Page<Topico> selecionarTopicosPeloNomeCurso(@Param("cursoNome") String cursoNome, Pageable pageable);
 
+	/*
+	 * Carrega tudo que o detalhe do tópico precisa (TopicoDetalheResponseDTO) em
+	 * uma única consulta: o tópico, o autor, o curso, as respostas e o autor de
+	 * cada resposta.
+	 * 
+	 * Sem o JOIN FETCH a JPA carrega o tópico, depois faz uma consulta para as
+	 * respostas (relacionamento LAZY) e mais uma consulta para cada autor
+	 * diferente das respostas (problema conhecido como N+1).
+	 * 
+	 * O DISTINCT evita que o tópico venha repetido, uma vez para cada resposta.
+	 */
+	@Query("SELECT DISTINCT t FROM Topico t LEFT JOIN FETCH t.autor LEFT JOIN FETCH t.curso "
+			+ "LEFT JOIN FETCH t.respostas r LEFT JOIN FETCH r.autor WHERE t.id = :id")
+	Optional<Topico> carregarDetalhe(@Param("id") Long id);
+
+	/*
+	 * Consultas de listagem com projeção (DTO).
+	 * 
+	 * A listagem só precisa de id, titulo, mensagem e dataCriacao. Quando usamos
+	 * findAll(pageable), a JPA carrega a entidade Topico inteira e, como
+	 * o @ManyToOne é EAGER por padrão, também carrega o autor (com seus perfis) e
+	 * o curso de cada tópico. Além disso, todas essas entidades ficam sendo
+	 * gerenciadas pelo contexto de persistência.
+	 * 
+	 * Com o "SELECT new ..." (constructor expression) o banco devolve somente as
+	 * colunas necessárias e a JPA chama diretamente o construtor do
+	 * TopicoResponseDTO. Nenhuma entidade é criada ou gerenciada.
+	 * 
+	 * Nas consultas que devolvem Page informamos a countQuery, pois o Spring não
+	 * consegue gerar o COUNT sozinho à partir de um "SELECT new".
+	 */
+	String RESUMO = "SELECT new br.com.totustuus.model.dto.TopicoResponseDTO(t.id, t.titulo, t.mensagem, t.dataCriacao) ";
+
+	@Query(value = RESUMO + "FROM Topico t", countQuery = "SELECT COUNT(t) FROM Topico t")
+	Page<TopicoResponseDTO> selecionarResumoDosTopicos(Pageable pageable);
+
+	@Query(value = RESUMO + "FROM Topico t WHERE t.curso.nome = :cursoNome",
+			countQuery = "SELECT COUNT(t) FROM Topico t WHERE t.curso.nome = :cursoNome")
+	Page<TopicoResponseDTO> selecionarResumoDosTopicosPeloNomeCurso(@Param("cursoNome") String cursoNome,
+			Pageable pageable);
+
+	/*
+	 * Mesmas consultas da listagem paginada, mas devolvendo um Slice ao invés de
+	 * um Page.
+	 * 
+	 * O Slice só sabe se existe uma próxima página: o Spring busca um registro a
+	 * mais do que o tamanho da página e não executa o SELECT COUNT(*). Quem
+	 * precisar do total pode consultar o TopicoContadorService.
+	 */
+	@Query(RESUMO + "FROM Topico t")
+	Slice<TopicoResponseDTO> selecionarTopicos(Pageable pageable);
+
+	@Query(RESUMO + "FROM Topico t WHERE t.curso.nome = :cursoNome")
+	Slice<TopicoResponseDTO> selecionarFatiaDeTopicosPeloNomeCurso(@Param("cursoNome") String cursoNome,
+			Pageable pageable);
+
+	/*
+	 * Consultas usadas na exportação (GET /topicos/export).
+	 * 
+	 * Devolvendo um Stream, o Hibernate usa um cursor no banco (ScrollableResults)
+	 * e entrega os registros conforme são lidos, ao invés de montar uma lista com
+	 * a tabela inteira em memória. O fetch size diz ao driver quantas linhas
+	 * buscar por vez.
+	 * 
+	 * IMPORTANTE: o Stream precisa ser consumido dentro de uma transação e
+	 * fechado no final (try-with-resources).
+	 */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(RESUMO + "FROM Topico t ORDER BY t.id")
+	Stream<TopicoResponseDTO> exportarTopicos();
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(RESUMO + "FROM Topico t WHERE t.curso.nome = :cursoNome ORDER BY t.id")
+	Stream<TopicoResponseDTO> exportarTopicosPeloNomeCurso(@Param("cursoNome") String cursoNome);
+
+	// Resumo de tópicos específicos (usado para atualizar o índice de busca)
+	@Query(RESUMO + "FROM Topico t WHERE t.id IN :ids")
+	List<TopicoResponseDTO> selecionarResumoDosTopicosPorIds(@Param("ids") Collection<Long> ids);
+
+	// Total de tópicos de cada curso: [nome do curso, total]
+	@Query("SELECT c.nome, COUNT(t) FROM Topico t JOIN t.curso c GROUP BY c.nome")
+	List<Object[]> contarTopicosPorCurso();
+
+	/*
+	 * Consultas da paginação por cursor (keyset). Ver TopicoCursor.
+	 * 
+	 * A ordenação é sempre (dataCriacao, id) decrescente, que é exatamente o
+	 * índice criado na entidade Topico. O Pageable recebido aqui serve apenas para
+	 * limitar a quantidade de registros (LIMIT), sempre na página 0. Como o
+	 * retorno é um List e não um Page, o Spring não executa o COUNT.
+	 * 
+	 * As consultas "Apos" recebem a chave do último registro entregue e buscam os
+	 * registros seguintes, sem OFFSET.
+	 */
+	@Query(RESUMO + "FROM Topico t ORDER BY t.dataCriacao DESC, t.id DESC")
+	List<TopicoResponseDTO> selecionarPrimeirosTopicos(Pageable pageable);
+
+	@Query(RESUMO + "FROM Topico t WHERE t.dataCriacao < :dataCriacao "
+			+ "OR (t.dataCriacao = :dataCriacao AND t.id < :id) ORDER BY t.dataCriacao DESC, t.id DESC")
+	List<TopicoResponseDTO> selecionarTopicosApos(@Param("dataCriacao") LocalDateTime dataCriacao,
+			@Param("id") Long id, Pageable pageable);
+
+	@Query(RESUMO + "FROM Topico t WHERE t.curso.nome = :cursoNome ORDER BY t.dataCriacao DESC, t.id DESC")
+	List<TopicoResponseDTO> selecionarPrimeirosTopicosPeloNomeCurso(@Param("cursoNome") String cursoNome,
+			Pageable pageable);
+
+	@Query(RESUMO + "FROM Topico t WHERE t.curso.nome = :cursoNome AND (t.dataCriacao < :dataCriacao "
+			+ "OR (t.dataCriacao = :dataCriacao AND t.id < :id)) ORDER BY t.dataCriacao DESC, t.id DESC")
+	List<TopicoResponseDTO> selecionarTopicosPeloNomeCursoApos(@Param("cursoNome") String cursoNome,
+			@Param("dataCriacao") LocalDateTime dataCriacao, @Param("id") Long id, Pageable pageable);
+
 }
@@ -0,0 +1,76 @@
+package br.com.totustuus.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.totustuus.model.StatusTopico;
+
+/**
+ * Métodos do TopicoRepository que não podem ser escritos com @Query, porque a
+ * consulta muda conforme os filtros informados.
+ * 
+ * O Spring Data junta essa interface ao TopicoRepository e usa a classe
+ * TopicoRepositoryCustomImpl (o sufixo "Impl" é obrigatório) como
+ * implementação.
+ * 
+ * @author thiago.machado
+ *
+ */
+public interface TopicoRepositoryCustom {
+
+	/**
+	 * Ids dos tópicos que atendem a todos os filtros informados, agrupados pelo
+	 * nome do curso (ver TopicoAlteradoEvent). Filtros nulos são ignorados. No
+	 * máximo "maximo" ids são trazidos.
+	 */
+	Map<String, Set<Long>> selecionarIdsPorCurso(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe,
+			LocalDateTime criadoAte, int maximo);
+
+	/**
+	 * Quantidade de tópicos nos filtros informados, agrupada pelo nome do curso.
+	 * Tópicos sem curso ficam na chave null.
+	 */
+	Map<String, Long> contarPorCurso(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe,
+			LocalDateTime criadoAte);
+
+	/*
+	 * Operações em lote (ver TopicoLoteService).
+	 * 
+	 * O DELETE/UPDATE é executado pelo banco com os próprios filtros, em um único
+	 * comando, sem carregar nenhuma entidade nem os ids. O retorno é a quantidade
+	 * de registros afetados.
+	 * 
+	 * IMPORTANTE: esses comandos não passam pelo contexto de persistência, então
+	 * entidades já carregadas na transação não enxergam a alteração. Também não
+	 * incrementam o @Version sozinhos, por isso o UPDATE altera a versão.
+	 */
+
+	/**
+	 * Remove as respostas e depois os tópicos que atendem aos filtros.
+	 * 
+	 * @return quantidade de tópicos removidos
+	 */
+	int removerTopicos(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe, LocalDateTime criadoAte);
+
+	/**
+	 * Altera o status (e incrementa a versão) dos tópicos que atendem aos filtros.
+	 * 
+	 * @return quantidade de tópicos alterados
+	 */
+	int alterarStatus(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe, LocalDateTime criadoAte,
+			StatusTopico status);
+
+	/**
+	 * Altera apenas os campos informados (não nulos) do tópico, em um único
+	 * UPDATE, se o tópico ainda estiver na versão informada. A versão é
+	 * incrementada.
+	 * 
+	 * O UPDATE é executado primeiro, com a versão no WHERE. Depois dele, uma
+	 * leitura pela chave primária traz o id do curso (se alterou) ou diz se o
+	 * tópico não existe ou está em outra versão (se nada foi alterado).
+	 */
+	AtualizacaoParcial atualizarParcialmente(Long id, Long versao, String titulo, String mensagem, StatusTopico status);
+
+}
@@ -0,0 +1,185 @@
+package br.com.totustuus.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import br.com.totustuus.model.Curso;
+import br.com.totustuus.model.Resposta;
+import br.com.totustuus.model.StatusTopico;
+import br.com.totustuus.model.Topico;
+
+/**
+ * Implementação do TopicoRepositoryCustom com a Criteria API da JPA, que
+ * permite montar a consulta apenas com os filtros informados.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class TopicoRepositoryCustomImpl implements TopicoRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Map<String, Set<Long>> selecionarIdsPorCurso(Collection<Long> ids, Long cursoId,
+			LocalDateTime criadoDe, LocalDateTime criadoAte, int maximo) {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Topico> topico = query.from(Topico.class);
+		Join<Topico, Curso> curso = topico.join("curso", JoinType.LEFT);
+
+		// Apenas o id e o nome do curso, nenhuma entidade é carregada
+		query.multiselect(topico.get("id"), curso.get("nome"));
+
+		query.where(filtros(builder, topico, ids, cursoId, criadoDe, criadoAte));
+
+		Map<String, Set<Long>> idsPorCurso = new HashMap<>();
+		for (Tuple linha : entityManager.createQuery(query).setMaxResults(maximo).getResultList())
+			idsPorCurso.computeIfAbsent(linha.get(1, String.class), (nome) -> new HashSet<>())
+					.add(linha.get(0, Long.class));
+
+		return idsPorCurso;
+	}
+
+	@Override
+	public Map<String, Long> contarPorCurso(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe,
+			LocalDateTime criadoAte) {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Topico> topico = query.from(Topico.class);
+		Join<Topico, Curso> curso = topico.join("curso", JoinType.LEFT);
+
+		query.multiselect(curso.get("nome"), builder.count(topico));
+		query.where(filtros(builder, topico, ids, cursoId, criadoDe, criadoAte));
+		query.groupBy(curso.get("nome"));
+
+		Map<String, Long> quantidadePorCurso = new HashMap<>();
+		for (Tuple linha : entityManager.createQuery(query).getResultList())
+			quantidadePorCurso.put(linha.get(0, String.class), linha.get(1, Long.class));
+
+		return quantidadePorCurso;
+	}
+
+	@Override
+	public int removerTopicos(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe, LocalDateTime criadoAte) {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+		// DELETE FROM resposta WHERE topico_id IN (SELECT id FROM topico WHERE <filtros>)
+		CriteriaDelete<Resposta> respostas = builder.createCriteriaDelete(Resposta.class);
+		Root<Resposta> resposta = respostas.from(Resposta.class);
+		Subquery<Long> topicosDoFiltro = respostas.subquery(Long.class);
+		Root<Topico> topicoDaResposta = topicosDoFiltro.from(Topico.class);
+		topicosDoFiltro.select(topicoDaResposta.get("id"))
+				.where(filtros(builder, topicoDaResposta, ids, cursoId, criadoDe, criadoAte));
+		respostas.where(resposta.get("topico").get("id").in(topicosDoFiltro));
+		entityManager.createQuery(respostas).executeUpdate();
+
+		CriteriaDelete<Topico> delete = builder.createCriteriaDelete(Topico.class);
+		Root<Topico> topico = delete.from(Topico.class);
+		delete.where(filtros(builder, topico, ids, cursoId, criadoDe, criadoAte));
+
+		return entityManager.createQuery(delete).executeUpdate();
+	}
+
+	@Override
+	public int alterarStatus(Collection<Long> ids, Long cursoId, LocalDateTime criadoDe, LocalDateTime criadoAte,
+			StatusTopico status) {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Topico> update = builder.createCriteriaUpdate(Topico.class);
+		Root<Topico> topico = update.from(Topico.class);
+
+		update.set("status", status);
+		update.set(topico.<Long>get("versao"), builder.sum(topico.<Long>get("versao"), 1L));
+		update.where(filtros(builder, topico, ids, cursoId, criadoDe, criadoAte));
+
+		return entityManager.createQuery(update).executeUpdate();
+	}
+
+	@Override
+	public AtualizacaoParcial atualizarParcialmente(Long id, Long versao, String titulo, String mensagem,
+			StatusTopico status) {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Topico> update = builder.createCriteriaUpdate(Topico.class);
+		Root<Topico> topico = update.from(Topico.class);
+
+		if (titulo != null)
+			update.set("titulo", titulo);
+
+		if (mensagem != null)
+			update.set("mensagem", mensagem);
+
+		if (status != null)
+			update.set("status", status);
+
+		update.set(topico.<Long>get("versao"), builder.sum(topico.<Long>get("versao"), 1L));
+		update.where(builder.equal(topico.get("id"), id), builder.equal(topico.get("versao"), versao));
+
+		boolean alterado = entityManager.createQuery(update).executeUpdate() > 0;
+
+		/*
+		 * Uma única leitura pela chave primária, sem JOIN: depois do UPDATE, o curso
+		 * (apenas o id, o nome vem do CursoCacheService); sem UPDATE, a versão atual
+		 * diz se o tópico não existe (404) ou está em outra versão (409).
+		 */
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Topico> atual = query.from(Topico.class);
+		query.multiselect(atual.get("versao"), atual.get("curso").get("id")).where(builder.equal(atual.get("id"), id));
+
+		List<Tuple> linhas = entityManager.createQuery(query).getResultList();
+
+		if (alterado)
+			return AtualizacaoParcial.alterado(linhas.isEmpty() ? null : linhas.get(0).get(1, Long.class));
+
+		return linhas.isEmpty() ? AtualizacaoParcial.naoEncontrado() : AtualizacaoParcial.conflito();
+	}
+
+	/*
+	 * Os filtros informados (não nulos), combinados com E. O curso é comparado
+	 * pela chave estrangeira (topico.curso_id), sem JOIN, o que também permite
+	 * usar os filtros em um DELETE/UPDATE.
+	 */
+	private Predicate[] filtros(CriteriaBuilder builder, Root<Topico> topico, Collection<Long> ids, Long cursoId,
+			LocalDateTime criadoDe, LocalDateTime criadoAte) {
+
+		List<Predicate> filtros = new ArrayList<>();
+
+		if (ids != null && !ids.isEmpty())
+			filtros.add(topico.get("id").in(ids));
+
+		if (cursoId != null)
+			filtros.add(builder.equal(topico.get("curso").get("id"), cursoId));
+
+		if (criadoDe != null)
+			filtros.add(builder.greaterThanOrEqualTo(topico.<LocalDateTime>get("dataCriacao"), criadoDe));
+
+		if (criadoAte != null)
+			filtros.add(builder.lessThan(topico.<LocalDateTime>get("dataCriacao"), criadoAte));
+
+		return filtros.toArray(new Predicate[0]);
+	}
+
+}
@@ -0,0 +1,129 @@
+package br.com.totustuus.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Cache dos tokens já verificados: hash do token -> Authentication.
+ * 
+ * Verificar um token custa decodificar o Base64, calcular o HMAC da assinatura
+ * e ler o JSON das claims. Um cliente envia o mesmo token em todas as
+ * requisições até ele expirar, então esse trabalho só precisa ser feito na
+ * primeira requisição. Nas seguintes o AutenticacaoViaTokenFilter encontra a
+ * Authentication pronta aqui.
+ * 
+ * <ul>
+ * <li>A chave é o SHA-256 do token, para não guardar os tokens em
+ * memória.</li>
+ * <li>Cada entrada expira junto com o próprio token (claim "exp"), então um
+ * token expirado nunca é aceito pelo cache.</li>
+ * <li>O cache tem um tamanho máximo (forum.jwt.cache.tamanho-maximo): os
+ * tokens menos usados são descartados e apenas verificados de novo.</li>
+ * </ul>
+ * 
+ * IMPORTANTE: a mesma Authentication é entregue a várias requisições, então
+ * ela não deve ser alterada.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class AutenticacaoCache {
+
+	private final TokenService tokenService;
+	private final Cache<String, TokenVerificado> cache;
+
+	public AutenticacaoCache(TokenService tokenService,
+			@Value("${forum.jwt.cache.tamanho-maximo:10000}") long tamanhoMaximo) {
+		this.tokenService = tokenService;
+		this.cache = Caffeine.newBuilder().maximumSize(tamanhoMaximo).expireAfter(new ExpiraComOToken()).build();
+	}
+
+	/**
+	 * Devolve a Authentication do token, verificando o token apenas se ele ainda
+	 * não estiver em cache.
+	 * 
+	 * @param token
+	 * @param criarAutenticacao monta a Authentication à partir das claims de um
+	 *                          token válido (pode devolver null)
+	 * @return a Authentication, ou null se o token for inválido
+	 */
+	public Authentication obter(String token, Function<Claims, Authentication> criarAutenticacao) {
+
+		TokenVerificado verificado = cache.get(hash(token), (hash) -> {
+			Claims claims = tokenService.getClaims(token);
+			if (claims == null)
+				return null; // Token inválido: nada é guardado
+
+			Authentication autenticacao = criarAutenticacao.apply(claims);
+			return autenticacao != null ? new TokenVerificado(autenticacao, claims.getExpiration()) : null;
+		});
+
+		return verificado != null ? verificado.autenticacao : null;
+	}
+
+	/*
+	 * Também usado pelo RefreshTokenService.
+	 */
+	static String hash(String token) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(hash);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex); // Todo Java possui SHA-256
+		}
+	}
+
+	private static class TokenVerificado {
+
+		private final Authentication autenticacao;
+		private final Date expiracao;
+
+		TokenVerificado(Authentication autenticacao, Date expiracao) {
+			this.autenticacao = autenticacao;
+			this.expiracao = expiracao;
+		}
+	}
+
+	/*
+	 * Tempo de vida de cada entrada: até a expiração do token. Tokens sem
+	 * expiração não ficam em cache.
+	 */
+	private static class ExpiraComOToken implements Expiry<String, TokenVerificado> {
+
+		@Override
+		public long expireAfterCreate(String hash, TokenVerificado token, long agora) {
+			if (token.expiracao == null)
+				return 0;
+
+			long restante = token.expiracao.getTime() - System.currentTimeMillis();
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(restante, 0));
+		}
+
+		@Override
+		public long expireAfterUpdate(String hash, TokenVerificado token, long agora, long duracaoAtual) {
+			return duracaoAtual;
+		}
+
+		@Override
+		public long expireAfterRead(String hash, TokenVerificado token, long agora, long duracaoAtual) {
+			return duracaoAtual;
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package br.com.totustuus.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import br.com.totustuus.config.consultas.Consultas;
+import br.com.totustuus.config.consultas.ContadorDeConsultas;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Executa a verificação de senha do login (BCrypt) em um pool de threads
+ * próprio e limitado.
+ * 
+ * O BCrypt é lento de propósito, para dificultar ataques de força bruta. Se
+ * muitos logins chegam ao mesmo tempo (ex.: após um deploy, quando todos os
+ * tokens expiram), as threads do Tomcat ficariam todas ocupadas calculando
+ * hashes, e até os GETs mais simples ficariam esperando.
+ * 
+ * Aqui:
+ * 
+ * <ul>
+ * <li>no máximo forum.login.threads senhas são verificadas ao mesmo tempo
+ * (por padrão, a quantidade de processadores);</li>
+ * <li>a fila de espera é limitada (forum.login.fila). Com a fila cheia, o
+ * login é recusado na hora;</li>
+ * <li>um login que esperou na fila mais do que forum.login.tempo-maximo-fila
+ * (ms) é descartado sem calcular o hash: o cliente provavelmente já desistiu,
+ * e calcular o hash só atrasaria os próximos da fila.</li>
+ * </ul>
+ * 
+ * Nos casos recusados é lançada a AutenticacaoSobrecarregadaException, e o
+ * AutenticacaoController responde 503.
+ * 
+ * IMPORTANTE: quando o tempo de espera (forum.login.tempo-maximo-espera)
+ * termina, o login é cancelado, mas isso só libera a fila. Um login ainda na
+ * fila é retirado dela e nunca calcula o hash. Já um hash em andamento não é
+ * interrompido: o BCrypt não verifica a interrupção da thread, então a thread
+ * continua ocupada até ele terminar (alguns décimos de segundo), e o resultado
+ * é descartado. Quem limita o processamento é a quantidade de threads, e não o
+ * tempo de espera.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class AutenticacaoExecutor {
+
+	private final ThreadPoolExecutor executor;
+	private final long tempoMaximoFila;
+	private final long tempoMaximoEspera;
+	private final MeterRegistry registry;
+
+	public AutenticacaoExecutor(MeterRegistry registry,
+			@Value("${forum.login.threads:0}") int threads,
+			@Value("${forum.login.fila:0}") int fila,
+			@Value("${forum.login.tempo-maximo-fila:500}") long tempoMaximoFila,
+			@Value("${forum.login.tempo-maximo-espera:3000}") long tempoMaximoEspera) {
+
+		// 0 = de acordo com a quantidade de processadores
+		int processadores = Runtime.getRuntime().availableProcessors();
+		int quantidadeDeThreads = threads > 0 ? threads : processadores;
+		int tamanhoDaFila = fila > 0 ? fila : quantidadeDeThreads * 4;
+
+		this.executor = new ThreadPoolExecutor(quantidadeDeThreads, quantidadeDeThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(tamanhoDaFila), new NomeDasThreads());
+		this.tempoMaximoFila = TimeUnit.MILLISECONDS.toNanos(tempoMaximoFila);
+		this.tempoMaximoEspera = tempoMaximoEspera;
+		this.registry = registry;
+
+		registry.gauge("forum.login.fila", executor, (pool) -> pool.getQueue().size());
+	}
+
+	/**
+	 * Executa a autenticação no pool do login e aguarda o resultado.
+	 * 
+	 * @param autenticacao normalmente authenticationManager.authenticate(...)
+	 * @return o usuário autenticado
+	 * @throws AuthenticationException             e-mail ou senha inválidos
+	 * @throws AutenticacaoSobrecarregadaException a senha não pôde ser verificada
+	 *                                             a tempo
+	 */
+	public Authentication autenticar(Supplier<Authentication> autenticacao) {
+
+		long entradaNaFila = System.nanoTime();
+		Consultas consultas = ContadorDeConsultas.atuais(); // O SELECT do usuário conta para a requisição
+		Future<Authentication> resultado = null;
+
+		try {
+			resultado = executor.submit(() -> {
+				if (System.nanoTime() - entradaNaFila > tempoMaximoFila)
+					throw recusar("fila", "tempo máximo na fila excedido");
+
+				return ContadorDeConsultas.contarEm(consultas, autenticacao);
+			});
+		} catch (RejectedExecutionException ex) {
+			throw recusar("cheio", "fila de login cheia");
+		}
+
+		try {
+			return resultado.get(tempoMaximoEspera, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause(); // AuthenticationException ou AutenticacaoSobrecarregadaException
+
+			throw new IllegalStateException(ex.getCause());
+		} catch (TimeoutException ex) {
+			cancelar(resultado);
+			throw recusar("espera", "tempo máximo de espera excedido");
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			cancelar(resultado);
+			throw recusar("espera", "login interrompido");
+		}
+	}
+
+	/*
+	 * Um login cancelado ainda na fila seria apenas ignorado quando chegasse a
+	 * vez dele, ocupando a vaga até lá: por isso também o retiramos da fila. Um
+	 * hash já em andamento termina normalmente (ver Javadoc da classe).
+	 */
+	private void cancelar(Future<Authentication> resultado) {
+		resultado.cancel(true);
+		executor.remove((Runnable) resultado);
+	}
+
+	private AutenticacaoSobrecarregadaException recusar(String motivo, String mensagem) {
+		registry.counter("forum.login.recusados", "motivo", motivo).increment();
+		return new AutenticacaoSobrecarregadaException(mensagem);
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		executor.shutdownNow();
+	}
+
+	private static class NomeDasThreads implements ThreadFactory {
+
+		private final AtomicInteger contador = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "login-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
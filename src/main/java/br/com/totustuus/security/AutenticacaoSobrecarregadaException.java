@@ -0,0 +1,19 @@
+package br.com.totustuus.security;
+
+/**
+ * Lançada quando o AutenticacaoExecutor não consegue verificar a senha dentro
+ * do tempo permitido (fila cheia ou espera longa demais). O login deve ser
+ * tentado novamente mais tarde.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class AutenticacaoSobrecarregadaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public AutenticacaoSobrecarregadaException(String mensagem) {
+		super(mensagem);
+	}
+
+}
@@ -1,6 +1,9 @@
 package br.com.totustuus.security;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -8,11 +11,15 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import br.com.totustuus.model.Usuario;
 import br.com.totustuus.repository.UsuarioRepository;
+import io.jsonwebtoken.Claims;
 
 /**
  * Antes de executar qualquer lógica de autenticação do usuário, é necessário
@@ -53,9 +60,22 @@ public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
 
 	private UsuarioRepository usuarioRepository;
 
-	public AutenticacaoViaTokenFilter(TokenService tokenService, UsuarioRepository usuarioRepository) {
+	private AutenticacaoCache autenticacaoCache;
+
+	/*
+	 * Rotas em que o usuário é consultado no banco mesmo com um token válido (ver
+	 * autenticarUsuario()).
+	 */
+	private List<RequestMatcher> rotasSensiveis = new ArrayList<>();
+
+	public AutenticacaoViaTokenFilter(TokenService tokenService, UsuarioRepository usuarioRepository,
+			AutenticacaoCache autenticacaoCache, String... rotasSensiveis) {
 		this.tokenService = tokenService;
 		this.usuarioRepository = usuarioRepository;
+		this.autenticacaoCache = autenticacaoCache;
+
+		for (String rota : rotasSensiveis)
+			this.rotasSensiveis.add(new AntPathRequestMatcher(rota));
 	}
 
 	/**
@@ -69,8 +89,8 @@ public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
 
 		String token = pegarToken(request);
 
-		if (tokenService.isTokenValido(token)) {
-			autenticarUsuario(token);
+		if (token != null) {
+			autenticarUsuario(token, request);
 		}
 
 		/*
@@ -87,9 +107,45 @@ public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
 	 * 
 	 * Como o token está válido, agora é só questão de "forçar" a autenticação.
 	 * 
-	 * Antes de tudo, vamos pegar o ID do usuário que consta no token.
+	 * O token só é verificado na primeira vez em que é recebido: a Authentication
+	 * montada fica no AutenticacaoCache até o token expirar. Nas rotas sensíveis
+	 * (forum.jwt.rotas-sensiveis) o cache não é usado, pois o usuário precisa ser
+	 * conferido no banco a cada requisição.
+	 * 
+	 * Por fim, forçamos a autenticação através do SecurityContextHolder.
+	 * 
+	 * @param token
+	 * @param request
+	 */
+	private void autenticarUsuario(String token, HttpServletRequest request) {
+
+		Authentication authentication = null;
+
+		if (isRotaSensivel(request)) {
+			Claims claims = tokenService.getClaims(token); // null se o token for inválido
+			if (claims != null)
+				authentication = criarAutenticacao(claims, true);
+		} else {
+			authentication = autenticacaoCache.obter(token, (claims) -> criarAutenticacao(claims, false));
+		}
+
+		if (authentication != null)
+			SecurityContextHolder.getContext().setAuthentication(authentication); // Força a autenticação
+	}
+
+	/**
+	 * Monta a autenticação à partir das claims de um token válido.
+	 * 
+	 * O usuário é montado com as informações do próprio token (id, nome e
+	 * perfis), sem consultar o banco (ver UsuarioAutenticado). O banco só é
+	 * consultado:
 	 * 
-	 * Em seguida, criamos o objeto Usuario através do ID.
+	 * <ul>
+	 * <li>em tokens gerados antes dos perfis fazerem parte do token;</li>
+	 * <li>nas rotas sensíveis (forum.jwt.rotas-sensiveis), para que um usuário
+	 * removido ou que perdeu um perfil não consiga usá-las até o token
+	 * expirar.</li>
+	 * </ul>
 	 * 
 	 * Em seguida, criamos uma instância de UsernamePasswordAuthenticationToken, que
 	 * recebe: o Usuario, Senha e Perfis de Autorização.
@@ -97,21 +153,42 @@ public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
 	 * A senha não precisamos passar, já que o token já está válido (por isso o
 	 * null).
 	 * 
-	 * Por fim, forçamos a autenticação através do SecurityContextHolder.
-	 * 
-	 * @param token
+	 * @param claims
+	 * @param consultarBanco
+	 * @return a autenticação, ou null se o usuário não existir mais
 	 */
-	private void autenticarUsuario(String token) {
+	private Authentication criarAutenticacao(Claims claims, boolean consultarBanco) {
 		// usuario, senha, perfil de acesso
-		Long id = tokenService.getUsuarioID(token);
+		Long id = Long.valueOf(claims.getSubject());
+		List<?> perfis = claims.get(TokenService.CLAIM_PERFIS, List.class);
 
-		// Não podemos usar o usuarioRepository.getOne(), pois os perfis não serão
-		// selecionados pelo Hibernate
-		Usuario usuario = usuarioRepository.findById(id).get();
+		UsuarioAutenticado usuario = null;
 
-		UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(usuario, null,
-				usuario.getAuthorities());
-		SecurityContextHolder.getContext().setAuthentication(authentication); // Força a autenticação
+		if (perfis == null || consultarBanco) {
+			// Não podemos usar o usuarioRepository.getOne(), pois os perfis não serão
+			// selecionados pelo Hibernate
+			Optional<Usuario> optional = usuarioRepository.findById(id);
+			if (!optional.isPresent())
+				return null; // Usuário removido: a requisição segue sem autenticação
+
+			usuario = UsuarioAutenticado.de(optional.get());
+		} else {
+			List<String> nomesDosPerfis = new ArrayList<>();
+			for (Object perfil : perfis)
+				nomesDosPerfis.add(String.valueOf(perfil));
+
+			usuario = new UsuarioAutenticado(id, claims.get(TokenService.CLAIM_NOME, String.class), nomesDosPerfis);
+		}
+
+		return new UsernamePasswordAuthenticationToken(usuario, null, usuario.getPerfis());
+	}
+
+	private boolean isRotaSensivel(HttpServletRequest request) {
+		for (RequestMatcher rota : rotasSensiveis) {
+			if (rota.matches(request))
+				return true;
+		}
+		return false;
 	}
 
 	/**
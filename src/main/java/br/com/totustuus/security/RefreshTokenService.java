@@ -0,0 +1,217 @@
+package br.com.totustuus.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Guarda as sessões abertas no login e o refresh token atual de cada uma.
+ * 
+ * O token de acesso (JWT) dura pouco (forum.jwt.expiration). Quando ele
+ * expira, o cliente envia o refresh token para /auth/refresh e recebe um novo
+ * token de acesso, sem enviar a senha de novo. Assim o BCrypt só roda no login,
+ * e não a cada renovação.
+ * 
+ * <ul>
+ * <li>O refresh token não é um JWT: é o id da sessão seguido de um valor
+ * aleatório ("sessao.segredo"). Aqui só é guardado o SHA-256 do token atual de
+ * cada sessão, junto com o usuário e a expiração.</li>
+ * <li>Rotação: cada refresh token só pode ser usado uma vez. Ao ser usado, o
+ * cliente recebe um novo, da mesma sessão, junto com o token de acesso, e o
+ * hash guardado passa a ser o do novo token.</li>
+ * <li>Detecção de reuso: um token de uma sessão conhecida que não é o atual
+ * dela já foi trocado. Se ele chegou de novo, alguém tem uma cópia: o cliente
+ * legítimo ou quem o roubou já o trocou por um novo. Como não dá para saber
+ * quem é quem, a sessão inteira é revogada e o token atual também deixa de
+ * valer, o que obriga um novo login com senha. Os tokens antigos não precisam
+ * ficar guardados: o id da sessão, dentro do token, basta.</li>
+ * <li>Cada login abre uma sessão, e cada usuário tem no máximo
+ * forum.jwt.refresh.sessoes-por-usuario sessões. Um login a mais revoga a
+ * mais antiga. A memória usada cresce com a quantidade de sessões, e não com
+ * a de renovações.</li>
+ * <li>As sessões vencidas são removidas periodicamente
+ * (forum.jwt.refresh.limpeza).</li>
+ * </ul>
+ * 
+ * Como as sessões ficam em memória, ao reiniciar a aplicação todos os usuários
+ * precisam fazer login novamente.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Service
+public class RefreshTokenService {
+
+	private static final char SEPARADOR = '.';
+
+	private final SecureRandom random = new SecureRandom();
+	private final Map<String, Sessao> sessoes = new ConcurrentHashMap<>();
+	private final Map<Long, Deque<Sessao>> sessoesPorUsuario = new ConcurrentHashMap<>();
+	private final long expiracao;
+	private final int limiteDeSessoes;
+
+	public RefreshTokenService(@Value("${forum.jwt.refresh.expiration}") long expiracao,
+			@Value("${forum.jwt.refresh.sessoes-por-usuario:10}") int limiteDeSessoes) {
+		this.expiracao = expiracao;
+		this.limiteDeSessoes = limiteDeSessoes;
+	}
+
+	/**
+	 * Abre uma nova sessão para o usuário (login) e emite o primeiro refresh
+	 * token dela.
+	 * 
+	 * @param usuarioId
+	 * @return o refresh token, que deve ser entregue ao cliente
+	 */
+	public String gerar(Long usuarioId) {
+		Sessao sessao = new Sessao(aleatorio(16), usuarioId);
+		String refreshToken;
+
+		synchronized (sessao) {
+			refreshToken = emitir(sessao);
+			sessoes.put(sessao.id, sessao);
+		}
+
+		// compute() é atômico por usuário: dois logins simultâneos não passam do limite juntos
+		sessoesPorUsuario.compute(usuarioId, (id, doUsuario) -> {
+			Deque<Sessao> abertas = doUsuario != null ? doUsuario : new ArrayDeque<>();
+			abertas.addLast(sessao);
+			while (abertas.size() > limiteDeSessoes)
+				revogar(abertas.removeFirst());
+			return abertas;
+		});
+
+		return refreshToken;
+	}
+
+	/**
+	 * Usa o refresh token e emite o próximo da mesma sessão. Depois dessa chamada
+	 * o token usado não é mais aceito, e usá-lo de novo revoga a sessão.
+	 * 
+	 * @param refreshToken
+	 * @return o usuário e o novo refresh token, ou null se o token não existir,
+	 *         já tiver sido usado, estiver vencido ou for de uma sessão revogada
+	 */
+	public Rotacao rotacionar(String refreshToken) {
+		if (refreshToken == null)
+			return null;
+
+		int separador = refreshToken.indexOf(SEPARADOR);
+		if (separador <= 0)
+			return null;
+
+		Sessao sessao = sessoes.get(refreshToken.substring(0, separador));
+		if (sessao == null)
+			return null; // Sessão vencida, revogada ou que nunca existiu
+
+		// Sincronizado na sessão: duas requisições com o mesmo token, só uma o usa
+		synchronized (sessao) {
+			if (sessao.revogada)
+				return null;
+
+			if (!mesmoHash(sessao.hashAtual, AutenticacaoCache.hash(refreshToken))) {
+				revogar(sessao); // Reuso: um token já trocado foi copiado
+				return null;
+			}
+
+			if (sessao.isExpirada(System.currentTimeMillis()))
+				return null;
+
+			return new Rotacao(sessao.usuarioId, emitir(sessao));
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${forum.jwt.refresh.limpeza:60000}")
+	public void removerExpirados() {
+		long agora = System.currentTimeMillis();
+		sessoes.values().removeIf((sessao) -> sessao.revogada || sessao.isExpirada(agora));
+
+		for (Long usuarioId : sessoesPorUsuario.keySet()) {
+			sessoesPorUsuario.computeIfPresent(usuarioId, (id, doUsuario) -> {
+				doUsuario.removeIf((sessao) -> sessao.revogada || sessao.isExpirada(agora));
+				return doUsuario.isEmpty() ? null : doUsuario;
+			});
+		}
+	}
+
+	private void revogar(Sessao sessao) {
+		sessao.revogada = true;
+		sessoes.remove(sessao.id, sessao);
+	}
+
+	/*
+	 * Chamado com o lock da sessão.
+	 */
+	private String emitir(Sessao sessao) {
+		String refreshToken = sessao.id + SEPARADOR + aleatorio(32);
+		sessao.hashAtual = AutenticacaoCache.hash(refreshToken);
+		sessao.expiraEm = System.currentTimeMillis() + expiracao; // A sessão vale enquanto o token atual valer
+		return refreshToken;
+	}
+
+	private String aleatorio(int tamanho) {
+		byte[] bytes = new byte[tamanho];
+		random.nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	// Comparação em tempo constante, para não revelar quantos caracteres coincidem
+	private static boolean mesmoHash(String esperado, String recebido) {
+		return MessageDigest.isEqual(esperado.getBytes(StandardCharsets.US_ASCII),
+				recebido.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Resultado de rotacionar(): o usuário do token usado e o novo refresh token.
+	 */
+	public static class Rotacao {
+
+		private final Long usuarioId;
+		private final String refreshToken;
+
+		Rotacao(Long usuarioId, String refreshToken) {
+			this.usuarioId = usuarioId;
+			this.refreshToken = refreshToken;
+		}
+
+		public Long getUsuarioId() {
+			return usuarioId;
+		}
+
+		public String getRefreshToken() {
+			return refreshToken;
+		}
+	}
+
+	/*
+	 * Um login e todas as renovações que vieram dele. Apenas o hash do token
+	 * atual é guardado.
+	 */
+	private static class Sessao {
+
+		private final String id;
+		private final Long usuarioId;
+		private volatile String hashAtual;
+		private volatile long expiraEm;
+		private volatile boolean revogada;
+
+		Sessao(String id, Long usuarioId) {
+			this.id = id;
+			this.usuarioId = usuarioId;
+		}
+
+		boolean isExpirada(long agora) {
+			return expiraEm <= agora;
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package br.com.totustuus.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -50,6 +51,16 @@ public class SecurityConfigurations extends WebSecurityConfigurerAdapter {
 	@Autowired
 	private UsuarioRepository usuarioRepository;
 
+	@Autowired
+	private AutenticacaoCache autenticacaoCache;
+
+	/*
+	 * Rotas em que o usuário do token é conferido no banco a cada requisição (ver
+	 * AutenticacaoViaTokenFilter).
+	 */
+	@Value("${forum.jwt.rotas-sensiveis:}")
+	private String[] rotasSensiveis;
+
 	/**
 	 * Precisa sobrescrever esse método somente para inserir a anotação @Bean.
 	 * 
@@ -128,12 +139,13 @@ public class SecurityConfigurations extends WebSecurityConfigurerAdapter {
 			.antMatchers(HttpMethod.GET, "/topicos/*").permitAll()
 			.antMatchers(HttpMethod.GET, "/actuator/**").permitAll() // Em produção, não inserir essa linha referente ao monitoramento
 			.antMatchers(HttpMethod.POST, "/auth").permitAll()
+			.antMatchers(HttpMethod.POST, "/auth/refresh").permitAll()
 			.anyRequest().authenticated()
 			// .and().formLogin();
 			.and().csrf().disable()
 			.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
 			.and().addFilterBefore(
-					new AutenticacaoViaTokenFilter(tokenService, usuarioRepository), 
+					new AutenticacaoViaTokenFilter(tokenService, usuarioRepository, autenticacaoCache, rotasSensiveis), 
 					UsernamePasswordAuthenticationFilter.class);
 	}
 
@@ -0,0 +1,117 @@
+package br.com.totustuus.security;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Conta as tentativas de login sem sucesso, por e-mail + IP e por IP, para
+ * barrar ataques de força bruta antes de gastar processamento com o BCrypt.
+ * 
+ * Depois de forum.login.limite-por-email-e-ip tentativas para um e-mail a
+ * partir de um mesmo IP, ou forum.login.limite-por-ip tentativas de um mesmo
+ * IP, novos logins são recusados (429) até a janela de forum.login.janela
+ * minutos, contada à partir da primeira tentativa, terminar.
+ * 
+ * O bloqueio não é só por e-mail: assim, qualquer pessoa conseguiria impedir o
+ * login de outro usuário apenas errando a senha dele algumas vezes. Com o IP
+ * na chave, o próprio usuário continua entrando de outro endereço.
+ * 
+ * A tentativa é reservada antes de verificar a senha (reservar()): o contador
+ * é incrementado e só então comparado com o limite. Se fosse verificado antes e
+ * incrementado depois da falha, vários logins simultâneos passariam pela
+ * verificação antes do primeiro registrar a falha, e o limite não valeria.
+ * Um login com sucesso, ou que nem chegou a verificar a senha (503), devolve a
+ * tentativa.
+ * 
+ * Os contadores ficam em caches do Caffeine: a estrutura é concorrente
+ * (dividida internamente em várias partes, então threads diferentes não
+ * disputam o mesmo lock), tem tamanho máximo, para que um ataque com milhões
+ * de e-mails não esgote a memória, e descarta os contadores ao fim da janela.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Component
+public class TentativasDeLogin {
+
+	private final Cache<String, AtomicInteger> tentativasPorEmailEIp;
+	private final Cache<String, AtomicInteger> tentativasPorIp;
+	private final int limitePorEmailEIp;
+	private final int limitePorIp;
+	private final long janela;
+
+	public TentativasDeLogin(@Value("${forum.login.limite-por-email-e-ip:5}") int limitePorEmailEIp,
+			@Value("${forum.login.limite-por-ip:20}") int limitePorIp,
+			@Value("${forum.login.janela:15}") long janela) {
+		this.limitePorEmailEIp = limitePorEmailEIp;
+		this.limitePorIp = limitePorIp;
+		this.janela = janela;
+		this.tentativasPorEmailEIp = Caffeine.newBuilder().maximumSize(100_000)
+				.expireAfterWrite(janela, TimeUnit.MINUTES).build();
+		this.tentativasPorIp = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(janela, TimeUnit.MINUTES)
+				.build();
+	}
+
+	/**
+	 * Reserva uma tentativa de login. A tentativa conta como falha até que
+	 * registrarSucesso() ou devolver() seja chamado.
+	 * 
+	 * @return false se o e-mail (a partir desse IP) ou o IP atingiu o limite
+	 */
+	public boolean reservar(String email, String ip) {
+		AtomicInteger porEmailEIp = tentativasPorEmailEIp.get(chave(email, ip), (chave) -> new AtomicInteger());
+		AtomicInteger porIp = tentativasPorIp.get(ip, (chave) -> new AtomicInteger());
+
+		// Cada thread recebe um valor diferente do incrementAndGet(): no máximo "limite" passam
+		boolean permitidaPorEmailEIp = porEmailEIp.incrementAndGet() <= limitePorEmailEIp;
+		boolean permitidaPorIp = porIp.incrementAndGet() <= limitePorIp;
+
+		if (permitidaPorEmailEIp && permitidaPorIp)
+			return true;
+
+		// Recusada: a tentativa não acontece e não deve contar
+		porEmailEIp.decrementAndGet();
+		porIp.decrementAndGet();
+		return false;
+	}
+
+	/*
+	 * O usuário acertou a senha: as tentativas anteriores desse e-mail e IP são
+	 * esquecidas, e a atual não conta para o IP.
+	 */
+	public void registrarSucesso(String email, String ip) {
+		tentativasPorEmailEIp.invalidate(chave(email, ip));
+		devolver(tentativasPorIp, ip);
+	}
+
+	/*
+	 * A senha não chegou a ser verificada (ex.: login recusado por sobrecarga).
+	 */
+	public void devolver(String email, String ip) {
+		devolver(tentativasPorEmailEIp, chave(email, ip));
+		devolver(tentativasPorIp, ip);
+	}
+
+	// Tempo (segundos) para o cliente tentar de novo (cabeçalho Retry-After)
+	public long getJanelaEmSegundos() {
+		return TimeUnit.MINUTES.toSeconds(janela);
+	}
+
+	private static void devolver(Cache<String, AtomicInteger> cache, String chave) {
+		AtomicInteger tentativas = cache.getIfPresent(chave);
+		if (tentativas != null)
+			tentativas.updateAndGet((valor) -> valor > 0 ? valor - 1 : 0);
+	}
+
+	private static String chave(String email, String ip) {
+		return (email == null ? "" : email.trim().toLowerCase(Locale.ROOT)) + "|" + ip;
+	}
+
+}
@@ -1,38 +1,102 @@
 package br.com.totustuus.security;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 
 import br.com.totustuus.model.Usuario;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class TokenService {
 
+	// Claims (informações) do token, além das padrões do JWT
+	static final String CLAIM_NOME = "nome";
+	static final String CLAIM_PERFIS = "perfis";
+
 	/*
-	 * Esses dois atributos estão em application.properties!
+	 * Esses dois valores estão em application.properties!
 	 * 
 	 * @Value("${chave}") = significa que estamos buscando por uma chave 
 	 * dentro do arquivo application.properties.
+	 * 
+	 * Eles são recebidos no construtor (e não em atributos com @Value) para que a
+	 * chave e o parser sejam montados uma única vez, quando o Spring cria o
+	 * TokenService.
+	 */
+	private final long expiracao;
+
+	/*
+	 * A chave usada para assinar e verificar os tokens. Antes, o segredo (String)
+	 * era passado ao Jwts a cada chamada, e a biblioteca decodificava o Base64 e
+	 * montava a chave todas as vezes. Agora isso é feito uma vez só, do mesmo jeito
+	 * que a biblioteca fazia (TextCodec.BASE64), então os tokens já emitidos
+	 * continuam válidos.
 	 */
-	
-	@Value("${forum.jwt.expiration}")
-	private String expiracao;
-	
-	@Value("${forum.jwt.secret}")
-	private String segredo;
-	
+	private final SecretKey chave;
+
+	/*
+	 * O parser configurado não muda depois de criado, então um único parser é
+	 * compartilhado por todas as requisições, ao invés de um Jwts.parser() novo a
+	 * cada verificação.
+	 */
+	private final JwtParser parser;
+
+	/*
+	 * Tempo de cada verificação de token feita por getClaims(), separado entre
+	 * tokens válidos e inválidos (métrica forum.jwt.verificacao).
+	 */
+	private final Timer verificacaoValida;
+	private final Timer verificacaoInvalida;
+
+	@Autowired
+	public TokenService(@Value("${forum.jwt.expiration}") String expiracao,
+			@Value("${forum.jwt.secret}") String segredo, MeterRegistry registry) {
+		this.expiracao = Long.valueOf(expiracao);
+		this.chave = new SecretKeySpec(TextCodec.BASE64.decode(segredo), SignatureAlgorithm.HS256.getJcaName());
+		this.parser = Jwts.parser().setSigningKey(chave);
+		this.verificacaoValida = timerDeVerificacao(registry, "valido");
+		this.verificacaoInvalida = timerDeVerificacao(registry, "invalido");
+	}
+
+	private static Timer timerDeVerificacao(MeterRegistry registry, String resultado) {
+		return Timer.builder("forum.jwt.verificacao").description("Verificação da assinatura e leitura do token")
+				.tag("resultado", resultado).publishPercentileHistogram().register(registry);
+	}
+
 	public String gerarToken(Authentication authenticate) {
 		
-		Date dataExpiracao = new Date(new Date().getTime() + Long.valueOf(expiracao));
-		
 		// Pegando o usuário de Authenticate
-		Usuario usuario = (Usuario) authenticate.getPrincipal();
+		return gerarToken((Usuario) authenticate.getPrincipal());
+	}
+
+	/*
+	 * Usado também na renovação do token (/auth/refresh), em que não há um
+	 * Authentication, apenas o usuário carregado do banco.
+	 */
+	public String gerarToken(Usuario usuario) {
+		
+		Date dataExpiracao = new Date(new Date().getTime() + expiracao);
+
+		List<String> perfis = new ArrayList<>();
+		for (GrantedAuthority perfil : usuario.getAuthorities())
+			perfis.add(perfil.getAuthority());
 		
 		/**
 		 * setIssuer = quem é que está gerando o token. Vou colocar que foi 
@@ -45,6 +109,10 @@ public class TokenService {
 		 * 
 		 * setExpiration = data de expiração do token
 		 * 
+		 * claim = informações extras. Guardamos o nome e os perfis do usuário para
+		 * que o AutenticacaoViaTokenFilter não precise consultar o banco a cada
+		 * requisição (ver UsuarioAutenticado).
+		 * 
 		 * signWith = pela especificação JSON webtoken, o token tem que ser 
 		 * criptografado. Preciso dizer para ele quem é o algoritmo de criptografia 
 		 * e a senha da minha aplicação, que é usada para fazer a assinatura e 
@@ -59,7 +127,9 @@ public class TokenService {
 			.setSubject(usuario.getId().toString())
 			.setIssuedAt(new Date())
 			.setExpiration(dataExpiracao)
-			.signWith(SignatureAlgorithm.HS256, segredo)
+			.claim(CLAIM_NOME, usuario.getNome())
+			.claim(CLAIM_PERFIS, perfis)
+			.signWith(SignatureAlgorithm.HS256, chave)
 			.compact();
 	}
 
@@ -87,7 +157,7 @@ public class TokenService {
 	public boolean isTokenValido(String token) {
 		
 		try {
-			Jwts.parser().setSigningKey(segredo).parseClaimsJws(token);
+			parser.parseClaimsJws(token);
 			return true;
 		} catch (Exception ex) {
 			//ex.printStackTrace();
@@ -96,8 +166,32 @@ public class TokenService {
 		return false;
 	}
 
+	/**
+	 * Verifica o token e devolve as suas informações, com uma única leitura do
+	 * token.
+	 * 
+	 * @param token
+	 * @return as claims do token, ou null se o token for inválido
+	 */
+	public Claims getClaims(String token) {
+
+		if (token == null)
+			return null;
+
+		long inicio = System.nanoTime();
+
+		try {
+			Claims claims = parser.parseClaimsJws(token).getBody();
+			verificacaoValida.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			return claims;
+		} catch (Exception ex) {
+			verificacaoInvalida.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			return null;
+		}
+	}
+
 	public Long getUsuarioID(String token) {
-		Claims claims = Jwts.parser().setSigningKey(segredo).parseClaimsJws(token).getBody();
+		Claims claims = parser.parseClaimsJws(token).getBody();
 		return Long.valueOf(claims.getSubject());
 	}
 
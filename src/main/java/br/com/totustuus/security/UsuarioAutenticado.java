@@ -0,0 +1,70 @@
+package br.com.totustuus.security;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import br.com.totustuus.model.Usuario;
+
+/**
+ * Usuário autenticado via token, montado apenas com as informações do token
+ * (id, nome e perfis).
+ * 
+ * Antes, o AutenticacaoViaTokenFilter carregava a entidade Usuario (e seus
+ * perfis) do banco a cada requisição. Como o token é assinado pela própria
+ * API, as informações dentro dele são confiáveis, e esse objeto simples é
+ * suficiente para o Spring Security.
+ * 
+ * @author thiago.machado
+ *
+ */
+public class UsuarioAutenticado implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long id;
+	private final String nome;
+	private final List<GrantedAuthority> perfis;
+
+	public UsuarioAutenticado(Long id, String nome, Collection<String> perfis) {
+		this.id = id;
+		this.nome = nome;
+
+		List<GrantedAuthority> autorizacoes = new ArrayList<>();
+		for (String perfil : perfis)
+			autorizacoes.add(new SimpleGrantedAuthority(perfil));
+
+		this.perfis = Collections.unmodifiableList(autorizacoes);
+	}
+
+	public static UsuarioAutenticado de(Usuario usuario) {
+		List<String> perfis = new ArrayList<>();
+		for (GrantedAuthority perfil : usuario.getAuthorities())
+			perfis.add(perfil.getAuthority());
+
+		return new UsuarioAutenticado(usuario.getId(), usuario.getNome(), perfis);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public List<GrantedAuthority> getPerfis() {
+		return perfis;
+	}
+
+	@Override
+	public String toString() {
+		return "UsuarioAutenticado [id=" + id + ", nome=" + nome + ", perfis=" + perfis + "]";
+	}
+
+}
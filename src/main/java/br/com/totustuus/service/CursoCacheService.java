@@ -0,0 +1,106 @@
+package br.com.totustuus.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import br.com.totustuus.model.Curso;
+import br.com.totustuus.repository.CursoRepository;
+
+/**
+ * Mantém em memória os cursos, indexados pelo nome.
+ * 
+ * Todo cadastro de tópico precisa encontrar o curso pelo nome. Os cursos quase
+ * nunca mudam, então não faz sentido consultar o banco a cada POST /topicos.
+ * Os cursos são carregados quando a aplicação sobe e ficam em um Map imutável:
+ * a leitura não precisa de lock, e uma recarga monta um Map novo e apenas
+ * troca a referência.
+ * 
+ * Quando um nome não é encontrado, o Map é recarregado do banco (no máximo uma
+ * vez a cada forum.cursos.intervalo-minimo-recarga milissegundos). Assim um
+ * curso cadastrado direto no banco passa a ser reconhecido, sem que nomes
+ * inválidos gerem uma consulta por requisição.
+ * 
+ * IMPORTANTE: as instâncias de Curso são compartilhadas entre as requisições e
+ * não estão ligadas a nenhum EntityManager. Servem apenas como referência
+ * (ex.: topico.setCurso()) e não devem ser alteradas.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Service
+public class CursoCacheService {
+
+	@Autowired
+	private CursoRepository cursoRepository;
+
+	@Value("${forum.cursos.intervalo-minimo-recarga:30000}")
+	private long intervaloMinimoRecarga;
+
+	private volatile Map<String, Curso> cursosPorNome = Collections.emptyMap();
+	private volatile Map<Long, Curso> cursosPorId = Collections.emptyMap();
+	private volatile long ultimaRecarga;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void recarregar() {
+		Map<String, Curso> novosCursos = new HashMap<>();
+		Map<Long, Curso> novosIds = new HashMap<>();
+		for (Curso curso : cursoRepository.findAll()) {
+			novosCursos.put(curso.getNome(), curso);
+			novosIds.put(curso.getId(), curso);
+		}
+
+		cursosPorNome = Collections.unmodifiableMap(novosCursos);
+		cursosPorId = Collections.unmodifiableMap(novosIds);
+		ultimaRecarga = System.currentTimeMillis();
+	}
+
+	/**
+	 * @param nome
+	 * @return o curso com o nome informado, ou null caso não exista
+	 */
+	public Curso buscarPeloNome(String nome) {
+		if (nome == null)
+			return null;
+
+		Curso curso = cursosPorNome.get(nome);
+
+		if (curso == null && recarregarSePermitido())
+			curso = cursosPorNome.get(nome);
+
+		return curso;
+	}
+
+	/**
+	 * Usado quando apenas o id do curso é conhecido (ex.: PATCH de um tópico).
+	 * 
+	 * @param id
+	 * @return o curso com o id informado, ou null caso não exista
+	 */
+	public Curso buscarPeloId(Long id) {
+		if (id == null)
+			return null;
+
+		Curso curso = cursosPorId.get(id);
+
+		if (curso == null && recarregarSePermitido())
+			curso = cursosPorId.get(id);
+
+		return curso;
+	}
+
+	private synchronized boolean recarregarSePermitido() {
+		if (System.currentTimeMillis() - ultimaRecarga < intervaloMinimoRecarga)
+			return false;
+
+		recarregar();
+		return true;
+	}
+
+}
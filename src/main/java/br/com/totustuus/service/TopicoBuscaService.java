@@ -0,0 +1,341 @@
+package br.com.totustuus.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.model.dto.TopicoResponseDTO;
+import br.com.totustuus.repository.TopicoRepository;
+
+/**
+ * Busca textual de tópicos (título e mensagem) com um índice invertido mantido
+ * em memória.
+ * 
+ * Um "LIKE '%texto%'" no banco não usa índice: toda busca leria a tabela
+ * inteira. Aqui cada texto é quebrado em termos e, para cada termo, guardamos os
+ * tópicos que o contém e o peso do termo em cada um (índice invertido, o mesmo
+ * princípio de ferramentas como o Lucene). Uma busca apenas consulta os termos
+ * pesquisados e vai ao banco somente para os tópicos da página pedida, pelo id.
+ * 
+ * <ul>
+ * <li>Os termos são normalizados: minúsculas e sem acentos, então "dúvida",
+ * "Duvida" e "DÚVIDA" são o mesmo termo.</li>
+ * <li>Palavras muito comuns (de, que, para...) são ignoradas.</li>
+ * <li>O resultado é ordenado por relevância (TF-IDF): termos raros valem mais
+ * que termos comuns, e um termo no título vale mais que na mensagem.</li>
+ * </ul>
+ * 
+ * O índice guarda apenas ids e pesos: título e mensagem não ficam em memória.
+ * E a busca não ordena todos os tópicos encontrados, apenas separa os melhores
+ * até o fim da página pedida (fila de prioridade com tamanho limitado).
+ * 
+ * O índice é montado quando a aplicação sobe e depois atualizado a cada
+ * TopicoAlteradoEvent, apenas para os tópicos do evento. Essas atualizações
+ * consultam o banco, por isso são feitas por uma thread própria
+ * ("busca-indice"): a requisição que alterou os tópicos apenas anota os ids e
+ * não espera. Os ids anotados enquanto a thread trabalha são atendidos juntos
+ * na próxima rodada. A busca pode ficar alguns milissegundos atrás do banco.
+ * As remoções em lote também trazem os ids (ver TopicoLoteService). Só uma
+ * remoção acima de 10000 tópicos chega sem os ids, e então o índice inteiro é
+ * montado de novo.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Service
+public class TopicoBuscaService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TopicoBuscaService.class);
+
+	// Um termo no título vale PESO_TITULO ocorrências na mensagem
+	private static final int PESO_TITULO = 3;
+
+	// Quantidade máxima de ids por consulta ao reindexar (limite de parâmetros do IN)
+	private static final int TAMANHO_DO_BLOCO = 1000;
+
+	private static final Pattern SEPARADOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+	// Maior pontuação primeiro. No empate, o tópico mais novo (maior id)
+	private static final Comparator<Map.Entry<Long, Double>> RELEVANCIA = Comparator
+			.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue).reversed()
+			.thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+
+	private static final Set<String> PALAVRAS_IGNORADAS = new HashSet<>(Arrays.asList("a", "as", "o", "os", "e",
+			"de", "da", "das", "do", "dos", "em", "na", "nas", "no", "nos", "um", "uma", "uns", "umas", "que", "para",
+			"por", "com", "se", "ao", "aos", "ou", "meu", "minha", "seu", "sua", "eu", "ele", "ela", "esta", "este",
+			"isso", "isto", "mas", "como", "mais", "nao", "sem", "ja", "tem"));
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	/*
+	 * Só a thread "busca-indice" altera o índice. As buscas não precisam de lock:
+	 * trabalham sobre coleções concorrentes. A reindexação completa monta um
+	 * índice novo e só depois o troca pelo atual.
+	 */
+	private volatile Indice indice = new Indice();
+
+	private final Set<Long> pendentes = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean agendado = new AtomicBoolean();
+
+	private final ExecutorService indexador = Executors.newSingleThreadExecutor((tarefa) -> {
+		Thread thread = new Thread(tarefa, "busca-indice");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void aoSubir() {
+		indexador.execute(this::indexarTudo);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarTopico(TopicoAlteradoEvent evento) {
+		if (evento.isEmLote()) {
+			// O status não é indexado. Uma remoção sem os ids (mais de 10000): o índice é montado de novo
+			if (evento.getTipo() == TopicoAlteradoEvent.Tipo.REMOVIDO)
+				indexador.execute(this::indexarTudo);
+			return;
+		}
+
+		if (evento.getTipo() == TopicoAlteradoEvent.Tipo.REMOVIDO) {
+			// Nada para ler do banco: os tópicos apenas saem do índice
+			Set<Long> removidos = evento.getIds();
+			indexador.execute(() -> {
+				Indice atual = indice;
+				removidos.forEach(atual::remover);
+			});
+			return;
+		}
+
+		pendentes.addAll(evento.getIds());
+
+		if (agendado.compareAndSet(false, true))
+			indexador.execute(this::reindexarPendentes);
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		indexador.shutdownNow();
+	}
+
+	private void indexarTudo() {
+		Indice novo = new Indice();
+
+		try {
+			transactionTemplate.execute((status) -> {
+				try (Stream<TopicoResponseDTO> topicos = topicoRepository.exportarTopicos()) {
+					topicos.forEach(novo::indexar);
+				}
+				return null;
+			});
+			indice = novo;
+		} catch (RuntimeException ex) {
+			if (!indexador.isShutdown()) // Aplicação encerrando: o banco pode já ter sido fechado
+				LOGGER.error("Falha ao montar o índice de busca", ex);
+		}
+	}
+
+	/*
+	 * Tópicos que não são mais encontrados no banco foram removidos e saem do
+	 * índice; os demais são indexados de novo com o título e a mensagem atuais.
+	 */
+	private void reindexarPendentes() {
+		agendado.set(false); // Ids anotados daqui em diante agendam uma nova rodada
+
+		List<Long> ids = new ArrayList<>();
+		for (Iterator<Long> iterator = pendentes.iterator(); iterator.hasNext();) {
+			ids.add(iterator.next());
+			iterator.remove();
+		}
+
+		try {
+			for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_DO_BLOCO) {
+				List<Long> bloco = ids.subList(inicio, Math.min(inicio + TAMANHO_DO_BLOCO, ids.size()));
+				List<TopicoResponseDTO> topicos = topicoRepository.selecionarResumoDosTopicosPorIds(bloco);
+
+				Indice atual = indice;
+				bloco.forEach(atual::remover);
+				topicos.forEach(atual::indexar);
+			}
+		} catch (RuntimeException ex) {
+			if (!indexador.isShutdown())
+				LOGGER.error("Falha ao atualizar o índice de busca para {} tópicos", ids.size(), ex);
+		}
+	}
+
+	/**
+	 * Busca os tópicos que possuem ao menos um dos termos do texto, do mais
+	 * relevante para o menos relevante.
+	 * 
+	 * @param texto
+	 * @param pageable apenas página e tamanho são considerados, a ordenação é
+	 *                 sempre por relevância
+	 * @return
+	 */
+	public Page<TopicoResponseDTO> buscar(String texto, Pageable pageable) {
+
+		Indice atual = indice;
+		Map<Long, Double> pontuacoes = new HashMap<>();
+		int totalDeDocumentos = Math.max(atual.termosPorTopico.size(), 1);
+
+		for (String termo : new HashSet<>(termos(texto))) {
+			Map<Long, Integer> pesos = atual.pesosPorTermo.get(termo);
+			if (pesos == null || pesos.isEmpty())
+				continue;
+
+			// IDF: quanto menos tópicos possuem o termo, mais ele vale
+			double idf = Math.log(1 + (double) totalDeDocumentos / pesos.size());
+
+			for (Map.Entry<Long, Integer> peso : pesos.entrySet())
+				pontuacoes.merge(peso.getKey(), (1 + Math.log(peso.getValue())) * idf, Double::sum);
+		}
+
+		int inicio = (int) Math.min(pageable.getOffset(), pontuacoes.size());
+		int fim = Math.min(inicio + pageable.getPageSize(), pontuacoes.size());
+		List<Long> ids = melhores(pontuacoes, fim).subList(inicio, fim);
+
+		if (ids.isEmpty())
+			return new PageImpl<>(Collections.emptyList(), pageable, pontuacoes.size());
+
+		Map<Long, TopicoResponseDTO> topicos = new HashMap<>();
+		for (TopicoResponseDTO topico : topicoRepository.selecionarResumoDosTopicosPorIds(ids))
+			topicos.put(topico.getId(), topico);
+
+		List<TopicoResponseDTO> pagina = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			TopicoResponseDTO topico = topicos.get(id);
+			if (topico != null) // Removido e ainda não retirado do índice
+				pagina.add(topico);
+		}
+
+		return new PageImpl<>(pagina, pageable, pontuacoes.size());
+	}
+
+	/*
+	 * Os "quantidade" ids de maior pontuação, em ordem. A fila mantém no topo o
+	 * pior dos selecionados até agora, que sai quando aparece um melhor. Assim
+	 * nunca ordenamos todos os tópicos encontrados, só os da fila.
+	 */
+	private static List<Long> melhores(Map<Long, Double> pontuacoes, int quantidade) {
+		if (quantidade <= 0)
+			return Collections.emptyList();
+
+		PriorityQueue<Map.Entry<Long, Double>> fila = new PriorityQueue<>(quantidade, RELEVANCIA.reversed());
+
+		for (Map.Entry<Long, Double> pontuacao : pontuacoes.entrySet()) {
+			if (fila.size() < quantidade)
+				fila.add(pontuacao);
+			else if (RELEVANCIA.compare(pontuacao, fila.peek()) < 0) {
+				fila.poll();
+				fila.add(pontuacao);
+			}
+		}
+
+		List<Map.Entry<Long, Double>> selecionados = new ArrayList<>(fila);
+		selecionados.sort(RELEVANCIA);
+
+		List<Long> ids = new ArrayList<>(selecionados.size());
+		for (Map.Entry<Long, Double> pontuacao : selecionados)
+			ids.add(pontuacao.getKey());
+		return ids;
+	}
+
+	/*
+	 * Quebra o texto em termos: minúsculas, sem acentos (o Normalizer separa a
+	 * letra do acento e depois removemos os acentos) e sem as palavras ignoradas.
+	 */
+	static List<String> termos(String texto) {
+		if (texto == null || texto.isEmpty())
+			return Collections.emptyList();
+
+		String normalizado = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+		normalizado = ACENTOS.matcher(normalizado).replaceAll("");
+
+		List<String> termos = new ArrayList<>(Arrays.asList(SEPARADOR.split(normalizado)));
+		Iterator<String> iterator = termos.iterator();
+		while (iterator.hasNext()) {
+			String termo = iterator.next();
+			if (termo.isEmpty() || PALAVRAS_IGNORADAS.contains(termo))
+				iterator.remove();
+		}
+
+		return termos;
+	}
+
+	private static class Indice {
+
+		// termo -> (id do tópico -> peso do termo no tópico)
+		private final Map<String, Map<Long, Integer>> pesosPorTermo = new ConcurrentHashMap<>();
+
+		// id do tópico -> termos do tópico, para conseguir retirá-lo do índice
+		private final Map<Long, String[]> termosPorTopico = new ConcurrentHashMap<>();
+
+		void indexar(TopicoResponseDTO topico) {
+			Map<String, Integer> pesos = new HashMap<>();
+
+			for (String termo : termos(topico.getTitulo()))
+				pesos.merge(termo, PESO_TITULO, Integer::sum);
+
+			for (String termo : termos(topico.getMensagem()))
+				pesos.merge(termo, 1, Integer::sum);
+
+			termosPorTopico.put(topico.getId(), pesos.keySet().toArray(new String[0]));
+
+			for (Map.Entry<String, Integer> peso : pesos.entrySet())
+				pesosPorTermo.computeIfAbsent(peso.getKey(), (t) -> new ConcurrentHashMap<>()).put(topico.getId(),
+						peso.getValue());
+		}
+
+		void remover(Long id) {
+			String[] termos = termosPorTopico.remove(id);
+			if (termos == null)
+				return;
+
+			for (String termo : termos) {
+				Map<Long, Integer> pesos = pesosPorTermo.get(termo);
+				if (pesos != null) {
+					pesos.remove(id);
+					if (pesos.isEmpty())
+						pesosPorTermo.remove(termo);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+package br.com.totustuus.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.repository.TopicoRepository;
+
+/**
+ * Mantém em memória o total de tópicos, geral e por curso.
+ *
+ * Um Page executa um SELECT COUNT(*) a cada requisição, e em uma tabela grande
+ * esse COUNT custa quase o mesmo que a própria página. Aqui o COUNT é feito uma
+ * única vez, quando a aplicação sobe, e depois os totais são apenas
+ * incrementados/decrementados a cada TopicoAlteradoEvent. Consultar um total
+ * passa a ser O(1).
+ *
+ * LongAdder é um contador pensado para muitas threads incrementando ao mesmo
+ * tempo: ele espalha as atualizações em várias células, evitando disputa.
+ *
+ * Depois da carga inicial, os totais mudam apenas pelos eventos, inclusive nas
+ * operações em lote sem os ids (o evento traz a quantidade de tópicos de cada
+ * curso). Recarregar à partir do banco com a aplicação em uso não seria seguro:
+ * o COUNT pode enxergar um tópico cujo evento ainda não chegou (contado duas
+ * vezes) ou um incremento pode cair nos contadores que estão sendo trocados
+ * (perdido).
+ *
+ * @author thiago.machado
+ *
+ */
+@Service
+public class TopicoContadorService {
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	private volatile LongAdder total = new LongAdder();
+	private volatile Map<String, LongAdder> totalPorCurso = new ConcurrentHashMap<>();
+
+	/*
+	 * Carrega os totais à partir do banco. O evento ApplicationReadyEvent é
+	 * disparado quando a aplicação terminou de subir, ou seja, depois que o
+	 * data.sql foi executado. Depois disso apenas os eventos alteram os totais.
+	 *
+	 * Os novos contadores são montados à parte e só depois substituem os atuais.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void recarregar() {
+		LongAdder novoTotal = new LongAdder();
+		Map<String, LongAdder> novoTotalPorCurso = new ConcurrentHashMap<>();
+
+		List<Object[]> totais = topicoRepository.contarTopicosPorCurso();
+		for (Object[] linha : totais) {
+			LongAdder contador = new LongAdder();
+			contador.add((Long) linha[1]);
+			novoTotalPorCurso.put((String) linha[0], contador);
+		}
+
+		novoTotal.add(topicoRepository.count());
+
+		totalPorCurso = novoTotalPorCurso;
+		total = novoTotal;
+	}
+
+	/*
+	 * fallbackExecution = true faz com que o evento também seja tratado quando for
+	 * publicado fora de uma transação.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarTopico(TopicoAlteradoEvent evento) {
+
+		int sinal = 0;
+
+		if (evento.getTipo() == TopicoAlteradoEvent.Tipo.CRIADO)
+			sinal = 1;
+		else if (evento.getTipo() == TopicoAlteradoEvent.Tipo.REMOVIDO)
+			sinal = -1;
+		else
+			return; // Atualização não altera os totais
+
+		for (Map.Entry<String, Long> entrada : evento.getQuantidadePorCurso().entrySet()) {
+			long quantidade = sinal * entrada.getValue();
+			total.add(quantidade);
+
+			if (entrada.getKey() != null)
+				totalPorCurso.computeIfAbsent(entrada.getKey(), (curso) -> new LongAdder()).add(quantidade);
+		}
+	}
+
+	public long total() {
+		return total.sum();
+	}
+
+	public long total(String cursoNome) {
+		LongAdder contador = totalPorCurso.get(cursoNome);
+		return contador != null ? contador.sum() : 0;
+	}
+
+}
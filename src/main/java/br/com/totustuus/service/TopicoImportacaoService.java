@@ -0,0 +1,192 @@
+package br.com.totustuus.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.model.Topico;
+import br.com.totustuus.model.dto.ImportacaoErroDTO;
+import br.com.totustuus.model.dto.ImportacaoLoteDTO;
+import br.com.totustuus.model.dto.ImportacaoResponseDTO;
+import br.com.totustuus.model.dto.TopicoRequestDTO;
+import br.com.totustuus.repository.TopicoRepository;
+
+/**
+ * Importação de tópicos em massa (POST /topicos/importacao).
+ * 
+ * Cadastrar os tópicos um a um custa uma requisição, uma transação e um INSERT
+ * por tópico. Aqui:
+ * 
+ * <ul>
+ * <li>o arquivo é lido como um Stream pelo Jackson (MappingIterator), um
+ * registro por vez, sem carregar o arquivo inteiro em memória. Tanto NDJSON
+ * (um JSON por linha) quanto um array JSON são aceitos;</li>
+ * <li>os registros são agrupados em lotes de forum.importacao.tamanho-lote, e
+ * cada lote é gravado em uma única transação;</li>
+ * <li>dentro da transação os INSERTs são enviados em JDBC batch, graças à
+ * sequence com allocationSize da entidade Topico e ao
+ * hibernate.jdbc.batch_size.</li>
+ * </ul>
+ * 
+ * Os registros são validados com as mesmas anotações do cadastro
+ * (TopicoRequestDTO). Registros inválidos são ignorados e informados no
+ * relatório do lote (no máximo forum.importacao.erros-maximo erros listados),
+ * os demais são gravados.
+ * 
+ * Se a gravação de um lote falhar, apenas esse lote é desfeito. A importação
+ * para, e o relatório devolvido traz os lotes já gravados e o erro.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Service
+public class TopicoImportacaoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TopicoImportacaoService.class);
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	@Autowired
+	private CursoCacheService cursoCacheService;
+
+	@Autowired
+	private ApplicationEventPublisher publicador;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${forum.importacao.tamanho-lote:500}")
+	private int tamanhoDoLote;
+
+	@Value("${forum.importacao.erros-maximo:100}")
+	private int errosMaximo;
+
+	public ImportacaoResponseDTO importar(InputStream entrada) throws IOException {
+
+		ImportacaoResponseDTO relatorio = new ImportacaoResponseDTO();
+		List<TopicoRequestDTO> registros = new ArrayList<>(tamanhoDoLote);
+
+		try (MappingIterator<TopicoRequestDTO> iterator = objectMapper.readerFor(TopicoRequestDTO.class)
+				.readValues(entrada)) {
+
+			while (iterator.hasNextValue()) {
+				registros.add(iterator.nextValue());
+
+				if (registros.size() == tamanhoDoLote) {
+					if (!gravarLote(registros, relatorio))
+						return relatorio; // O restante do arquivo não é lido
+					registros.clear();
+				}
+			}
+		} catch (JsonProcessingException ex) {
+			/*
+			 * Com o JSON mal formado não é possível saber onde começa o próximo registro.
+			 * A importação para aqui, e os registros lidos antes do erro ainda são
+			 * gravados.
+			 */
+			relatorio.setErro("JSON inválido após o registro " + (relatorio.getRecebidos() + registros.size())
+					+ ": " + ex.getOriginalMessage());
+		}
+
+		if (!registros.isEmpty())
+			gravarLote(registros, relatorio);
+
+		return relatorio;
+	}
+
+	/*
+	 * Devolve false se o lote não pôde ser gravado: o erro fica no relatório.
+	 */
+	private boolean gravarLote(List<TopicoRequestDTO> registros, ImportacaoResponseDTO relatorio) {
+
+		ImportacaoLoteDTO lote = new ImportacaoLoteDTO(relatorio.getLotes().size() + 1);
+		List<Topico> topicos = new ArrayList<>(registros.size());
+		long primeiroRegistro = relatorio.getRecebidos() + 1;
+
+		for (int i = 0; i < registros.size(); i++) {
+			Set<ConstraintViolation<TopicoRequestDTO>> violacoes = validator.validate(registros.get(i));
+
+			if (violacoes.isEmpty()) {
+				topicos.add(registros.get(i).converter(cursoCacheService));
+				continue;
+			}
+
+			for (ConstraintViolation<TopicoRequestDTO> violacao : violacoes)
+				relatorio.adicionarErro(lote, new ImportacaoErroDTO(primeiroRegistro + i,
+						violacao.getPropertyPath().toString(), violacao.getMessage()), errosMaximo);
+		}
+
+		boolean gravado = true;
+
+		if (!topicos.isEmpty()) {
+			try {
+				gravar(topicos);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Falha ao gravar o lote {} da importação", lote.getNumero(), ex);
+				entityManager.clear(); // Os tópicos do lote desfeito não podem ficar no contexto
+
+				String erro = "Falha ao gravar o lote " + lote.getNumero() + " (registros " + primeiroRegistro + " a "
+						+ (primeiroRegistro + registros.size() - 1) + "). Os lotes anteriores foram gravados.";
+				relatorio.setErro(relatorio.getErro() != null ? relatorio.getErro() + " " + erro : erro);
+				topicos.clear();
+				gravado = false;
+			}
+		}
+
+		lote.setImportados(topicos.size());
+		relatorio.getLotes().add(lote);
+		relatorio.setRecebidos(relatorio.getRecebidos() + registros.size());
+		relatorio.setImportados(relatorio.getImportados() + topicos.size());
+		relatorio.setRejeitados(relatorio.getRecebidos() - relatorio.getImportados());
+		return gravado;
+	}
+
+	private void gravar(List<Topico> topicos) {
+		transactionTemplate.execute((status) -> {
+			topicoRepository.saveAll(topicos);
+
+			/*
+			 * Grava e retira os tópicos do contexto de persistência, que continua aberto
+			 * durante toda a requisição (open-in-view). Sem o clear() ele cresceria a
+			 * cada lote.
+			 */
+			entityManager.flush();
+			entityManager.clear();
+
+			// Entregue após o commit do lote (ver TopicoAlteradoEvent)
+			publicador.publishEvent(TopicoAlteradoEvent.criados(topicos));
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,125 @@
+package br.com.totustuus.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.model.dto.TopicoLoteRequestDTO;
+import br.com.totustuus.model.dto.TopicoLoteStatusRequestDTO;
+import br.com.totustuus.repository.TopicoRepository;
+
+/**
+ * Remoção e alteração de status de vários tópicos de uma vez, por ids, por
+ * curso ou por período de criação.
+ * 
+ * Remover um tópico com findById() + deleteById() carrega o tópico (e seus
+ * relacionamentos) duas vezes antes do DELETE. Para milhares de tópicos isso
+ * vira milhares de idas ao banco. Aqui:
+ * 
+ * <ol>
+ * <li>um único DELETE/UPDATE é executado com o próprio filtro, já incluindo as
+ * respostas dos tópicos removidos. Nenhum id é trazido para a aplicação;</li>
+ * <li>um único TopicoAlteradoEvent é publicado, então os caches e contadores
+ * são atualizados uma vez só, após o commit.</li>
+ * </ol>
+ * 
+ * Antes do comando, os ids dos tópicos do filtro são lidos, agrupados por curso
+ * (até LIMITE_IDS, o mesmo limite de ids do TopicoLoteRequestDTO), e o evento
+ * descreve cada tópico alterado: quem mantém informação por tópico (índice de
+ * busca, cache do detalhe, contadores) atualiza apenas esses tópicos. Com
+ * filtro por curso ou período a quantidade de tópicos não tem limite. Acima de
+ * LIMITE_IDS, o evento traz apenas a quantidade de tópicos de cada curso
+ * (TopicoAlteradoEvent.emLote), e quem mantém informação por tópico recomeça do
+ * zero: para uma alteração desse tamanho, é mais barato do que guardar os ids.
+ * 
+ * @author thiago.machado
+ *
+ */
+@Service
+public class TopicoLoteService {
+
+	// Acima dessa quantidade de tópicos, o evento traz apenas a quantidade por curso
+	private static final int LIMITE_IDS = 10000;
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	@Autowired
+	private CursoCacheService cursoCacheService;
+
+	@Autowired
+	private ApplicationEventPublisher publicador;
+
+	/**
+	 * Remove os tópicos do filtro e suas respostas.
+	 * 
+	 * @return quantidade de tópicos removidos
+	 */
+	@Transactional
+	public int remover(TopicoLoteRequestDTO filtro) {
+		Long cursoId = cursoId(filtro);
+		return executar(filtro, cursoId, TopicoAlteradoEvent.Tipo.REMOVIDO, () -> topicoRepository
+				.removerTopicos(filtro.getIds(), cursoId, filtro.getCriadoDe(), filtro.getCriadoAte()));
+	}
+
+	/**
+	 * Altera o status dos tópicos do filtro.
+	 * 
+	 * @return quantidade de tópicos alterados
+	 */
+	@Transactional
+	public int alterarStatus(TopicoLoteStatusRequestDTO filtro) {
+		Long cursoId = cursoId(filtro);
+		return executar(filtro, cursoId, TopicoAlteradoEvent.Tipo.ATUALIZADO, () -> topicoRepository.alterarStatus(
+				filtro.getIds(), cursoId, filtro.getCriadoDe(), filtro.getCriadoAte(), filtro.getStatus()));
+	}
+
+	private Long cursoId(TopicoLoteRequestDTO filtro) {
+		if (filtro.getCursoNome() == null)
+			return null;
+
+		return cursoCacheService.buscarPeloNome(filtro.getCursoNome()).getId(); // Validado pelo @CursoExistente
+	}
+
+	private int executar(TopicoLoteRequestDTO filtro, Long cursoId, TopicoAlteradoEvent.Tipo tipo,
+			Supplier<Integer> comando) {
+
+		TopicoAlteradoEvent evento;
+
+		Map<String, Set<Long>> idsPorCurso = topicoRepository.selecionarIdsPorCurso(filtro.getIds(), cursoId,
+				filtro.getCriadoDe(), filtro.getCriadoAte(), LIMITE_IDS + 1);
+
+		if (idsPorCurso.isEmpty())
+			return 0;
+
+		if (quantidade(idsPorCurso) <= LIMITE_IDS) {
+			evento = new TopicoAlteradoEvent(tipo, idsPorCurso);
+		} else {
+			Map<String, Long> quantidadePorCurso = topicoRepository.contarPorCurso(filtro.getIds(), cursoId,
+					filtro.getCriadoDe(), filtro.getCriadoAte());
+			evento = TopicoAlteradoEvent.emLote(tipo, quantidadePorCurso);
+		}
+
+		int afetados = comando.get();
+
+		if (afetados > 0)
+			publicador.publishEvent(evento);
+
+		return afetados;
+	}
+
+	private static int quantidade(Map<String, Set<Long>> idsPorCurso) {
+		int quantidade = 0;
+		for (Set<Long> ids : idsPorCurso.values())
+			quantidade += ids.size();
+		return quantidade;
+	}
+
+}
@@ -0,0 +1,121 @@
+package br.com.totustuus.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+
+/**
+ * Mantém em memória uma "versão" das listagens de tópicos, usada para gerar o
+ * cabeçalho ETag (ver TopicoCondicionalInterceptor): um contador geral e um
+ * contador por curso, incrementados a cada alteração.
+ * 
+ * Com isso conseguimos responder se uma listagem mudou sem consultar o banco.
+ * O momento em que a aplicação subiu faz parte do ETag, pois os contadores
+ * recomeçam do zero a cada reinício. A memória usada não cresce com a
+ * quantidade de tópicos, apenas com a de cursos.
+ * 
+ * Para o detalhe, o ETag é a própria versão do tópico gravada no banco
+ * (@Version), devolvida pelo detalhar() do TopicoController. Aqui fica apenas o
+ * momento da última alteração de cada tópico, usado no cabeçalho Last-Modified
+ * e no If-Modified-Since:
+ * 
+ * <ul>
+ * <li>um tópico que não foi alterado desde que a aplicação subiu não tem
+ * registro: vale o "piso", que começa no momento em que a aplicação
+ * subiu;</li>
+ * <li>as datas do HTTP têm precisão de segundos, então cada alteração de um
+ * tópico avança a data dele em pelo menos um segundo. Duas alterações no mesmo
+ * segundo não podem gerar o mesmo Last-Modified;</li>
+ * <li>uma alteração em lote sem os ids (TopicoAlteradoEvent.emLote), ou um
+ * mapa com mais de LIMITE_TOPICOS registros, descarta o mapa e leva o piso
+ * para depois de todas as datas já entregues. Todos os tópicos passam a ser
+ * revalidados uma vez, mas a memória usada fica limitada.</li>
+ * </ul>
+ * 
+ * @author thiago.machado
+ *
+ */
+@Service
+public class TopicoVersaoService {
+
+	private final String prefixo = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	// Quantidade máxima de tópicos com data de alteração própria
+	private static final int LIMITE_TOPICOS = 100000;
+
+	private final AtomicLong versaoGeral = new AtomicLong();
+	private final Map<String, AtomicLong> versaoPorCurso = new ConcurrentHashMap<>();
+
+	private final Map<Long, Long> alteracaoPorTopico = new ConcurrentHashMap<>();
+	private volatile long piso = segundoAtual();
+	private long maiorAlteracao = piso;
+
+	/*
+	 * Executado depois dos invalidadores de cache (@Order): uma versão nova nunca
+	 * pode ser entregue junto com um conteúdo antigo ainda em cache.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	@Order(Ordered.LOWEST_PRECEDENCE)
+	public void aoAlterarTopico(TopicoAlteradoEvent evento) {
+		for (String cursoNome : evento.getCursos()) {
+			if (cursoNome != null)
+				versaoPorCurso.computeIfAbsent(cursoNome, (curso) -> new AtomicLong()).incrementAndGet();
+		}
+
+		registrarAlteracao(evento);
+
+		versaoGeral.incrementAndGet();
+	}
+
+	/**
+	 * Momento da última alteração do tópico, em milissegundos (sempre um segundo
+	 * inteiro), para o cabeçalho Last-Modified.
+	 */
+	public long ultimaAlteracao(Long id) {
+		Long alteracao = alteracaoPorTopico.get(id);
+		long pisoAtual = piso; // Lido depois do mapa: o piso sobe antes do mapa ser descartado
+		return alteracao != null ? Math.max(alteracao, pisoAtual) : pisoAtual;
+	}
+
+	/*
+	 * Sincronizado para que duas alterações do mesmo tópico (ou um descarte do
+	 * mapa) não gerem datas fora de ordem. As leituras não são bloqueadas.
+	 */
+	private synchronized void registrarAlteracao(TopicoAlteradoEvent evento) {
+		Set<Long> ids = evento.getIds();
+
+		if (evento.isEmLote() || alteracaoPorTopico.size() + ids.size() > LIMITE_TOPICOS) {
+			piso = Math.max(segundoAtual(), maiorAlteracao + 1000);
+			maiorAlteracao = piso;
+			alteracaoPorTopico.clear();
+			return;
+		}
+
+		for (Long id : ids) {
+			long alteracao = Math.max(segundoAtual(), ultimaAlteracao(id) + 1000);
+			alteracaoPorTopico.put(id, alteracao);
+			maiorAlteracao = Math.max(maiorAlteracao, alteracao);
+		}
+	}
+
+	private static long segundoAtual() {
+		return System.currentTimeMillis() / 1000 * 1000;
+	}
+
+	public String etagDaLista(String cursoNome) {
+		if (cursoNome == null)
+			return "\"g" + prefixo + "-" + versaoGeral.get() + "\"";
+
+		AtomicLong versao = versaoPorCurso.get(cursoNome);
+		return "\"c" + prefixo + "-" + (versao != null ? versao.get() : 0) + "\"";
+	}
+
+}
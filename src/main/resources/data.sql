@@ -15,9 +15,15 @@ INSERT INTO USUARIO(nome, email, senha) VALUES('Aluno', 'aluno@email.com', '$2a$
 INSERT INTO CURSO(nome, categoria) VALUES('Spring Boot', 'Programação');
 INSERT INTO CURSO(nome, categoria) VALUES('HTML 5', 'Front-end');
 
-INSERT INTO TOPICO(titulo, mensagem, data_criacao, status, autor_id, curso_id) VALUES('Dúvida', 'Erro ao criar projeto', '2019-05-05 18:00:00', 'NAO_RESPONDIDO', 1, 1);
-INSERT INTO TOPICO(titulo, mensagem, data_criacao, status, autor_id, curso_id) VALUES('Dúvida 2', 'Projeto não compila', '2019-05-05 19:00:00', 'NAO_RESPONDIDO', 1, 1);
-INSERT INTO TOPICO(titulo, mensagem, data_criacao, status, autor_id, curso_id) VALUES('Dúvida 3', 'Tag HTML', '2019-05-05 20:00:00', 'NAO_RESPONDIDO', 1, 2);
+INSERT INTO TOPICO(id, titulo, mensagem, data_criacao, status, autor_id, curso_id, versao) VALUES(1, 'Dúvida', 'Erro ao criar projeto', '2019-05-05 18:00:00', 'NAO_RESPONDIDO', 1, 1, 0);
+INSERT INTO TOPICO(id, titulo, mensagem, data_criacao, status, autor_id, curso_id, versao) VALUES(2, 'Dúvida 2', 'Projeto não compila', '2019-05-05 19:00:00', 'NAO_RESPONDIDO', 1, 1, 0);
+INSERT INTO TOPICO(id, titulo, mensagem, data_criacao, status, autor_id, curso_id, versao) VALUES(3, 'Dúvida 3', 'Tag HTML', '2019-05-05 20:00:00', 'NAO_RESPONDIDO', 1, 2, 0);
+
+/*
+ * O id do tópico vem da sequence topico_seq (ver entidade Topico). Como os tópicos acima foram
+ * inseridos com o id informado, a sequence precisa continuar a partir do próximo id livre.
+ */
+ALTER SEQUENCE topico_seq RESTART WITH 4;
 
 
 INSERT INTO RESPOSTA (data_criacao, mensagem, solucao, autor_id, topico_id) VALUES (CURRENT_TIMESTAMP, 'Primeria resposta', false, 1, 1);
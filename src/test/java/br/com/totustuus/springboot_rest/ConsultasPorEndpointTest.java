@@ -0,0 +1,87 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import br.com.totustuus.config.cache.DetalheDeTopicoInvalidador;
+import br.com.totustuus.config.consultas.Consultas;
+import br.com.totustuus.config.consultas.ContadorDeConsultas;
+import br.com.totustuus.model.Topico;
+
+/**
+ * Quantidade máxima de comandos SQL dos endpoints de leitura mais usados. Se
+ * uma alteração criar um N+1, esse teste falha mostrando a quantidade
+ * executada.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ConsultasPorEndpointTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+	}
+
+	@Test
+	public void listagem() throws Exception {
+		mockMvc.perform(get("/topicos").param("pagina", "0").param("quantidade", "10"))
+				.andExpect(status().isOk()).andExpect(ConsultasPorRequisicao.noMaximo(2));
+	}
+
+	@Test
+	public void detalhe() throws Exception {
+		// Outro teste pode ter deixado o detalhe em cache, e aí nenhum comando seria executado
+		cacheManager.getCache(DetalheDeTopicoInvalidador.CACHE).clear();
+
+		mockMvc.perform(get("/topicos/1")).andExpect(status().isOk()).andExpect(ConsultasPorRequisicao.noMaximo(3));
+	}
+
+	/*
+	 * O contador também enxerga um N+1 fora de uma requisição: percorrer as
+	 * respostas de cada tópico carregado executa um SELECT por tópico.
+	 */
+	@Test
+	public void contarForaDeUmaRequisicao() {
+		Consultas consultas = transactionTemplate.execute((status) -> ContadorDeConsultas.contar(() -> {
+			for (Topico topico : entityManager.createQuery("select t from Topico t", Topico.class).getResultList())
+				topico.getRespostas().size();
+		}));
+
+		long topicos = transactionTemplate.execute((status) -> entityManager
+				.createQuery("select count(t) from Topico t", Long.class).getSingleResult());
+
+		// Além da consulta dos tópicos (e dos autores/cursos), o mesmo SELECT de
+		// respostas se repete uma vez para cada tópico
+		assertTrue(consultas.getTotal() > topicos);
+		assertTrue(consultas.getRepeticoes(consultas.getMaisRepetida()) >= topicos);
+	}
+
+}
@@ -0,0 +1,55 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.servlet.Filter;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import br.com.totustuus.config.consultas.ContadorDeConsultasFilter;
+
+/**
+ * Ajuda a garantir, nos testes, a quantidade de comandos SQL de cada endpoint,
+ * lendo o cabeçalho X-Query-Count (ver ContadorDeConsultasFilter).
+ * 
+ * <pre>
+ * mockMvc.perform(get("/topicos/1")).andExpect(ConsultasPorRequisicao.noMaximo(3));
+ * </pre>
+ * 
+ * Para código chamado sem uma requisição, usar ContadorDeConsultas.contar().
+ */
+public final class ConsultasPorRequisicao {
+
+	private ConsultasPorRequisicao() {
+	}
+
+	/**
+	 * MockMvc com o filtro que conta os comandos e com o Spring Security, usando o
+	 * contexto do Spring que já está aberto (sem criar outro contexto e outro
+	 * banco).
+	 */
+	public static MockMvc mockMvc(WebApplicationContext contexto) {
+		return MockMvcBuilders.webAppContextSetup(contexto)
+				.addFilters(contexto.getBean(ContadorDeConsultasFilter.class),
+						contexto.getBean("springSecurityFilterChain", Filter.class))
+				.build();
+	}
+
+	public static ResultMatcher noMaximo(int maximo) {
+		return (resultado) -> {
+			int quantidade = quantidade(resultado.getResponse().getHeader(ContadorDeConsultasFilter.CABECALHO_QUANTIDADE));
+			assertTrue(resultado.getRequest().getMethod() + " " + resultado.getRequest().getRequestURI() + " executou "
+					+ quantidade + " comandos SQL (máximo: " + maximo + ")", quantidade <= maximo);
+		};
+	}
+
+	private static int quantidade(String cabecalho) {
+		assertNotNull("Resposta sem o cabeçalho " + ContadorDeConsultasFilter.CABECALHO_QUANTIDADE, cabecalho);
+		return Integer.parseInt(cabecalho);
+	}
+
+}
@@ -0,0 +1,108 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.context.WebApplicationContext;
+
+import br.com.totustuus.config.consultas.ContadorDeConsultas;
+import br.com.totustuus.model.Curso;
+import br.com.totustuus.service.CursoCacheService;
+
+/**
+ * Cursos em memória (ver CursoCacheService) e a validação @CursoExistente, que
+ * consulta esse cache: curso conhecido, curso desconhecido e a recarga
+ * limitada depois de um curso ser cadastrado direto no banco.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CursoCacheTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CursoCacheService cursoCacheService;
+
+	private MockMvc mockMvc;
+	private Object intervaloMinimoRecarga;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		intervaloMinimoRecarga = ReflectionTestUtils.getField(cursoCacheService, "intervaloMinimoRecarga");
+	}
+
+	@After
+	public void restaurar() {
+		ReflectionTestUtils.setField(cursoCacheService, "intervaloMinimoRecarga", intervaloMinimoRecarga);
+	}
+
+	@Test
+	public void cursoConhecidoSemConsultarOBanco() throws Exception {
+		assertEquals(0, consultas(() -> {
+			Curso curso = cursoCacheService.buscarPeloNome("Spring Boot");
+			assertNotNull(curso);
+			assertEquals(curso, cursoCacheService.buscarPeloId(curso.getId()));
+		}));
+
+		cadastrar("Spring Boot").andExpect(status().isCreated());
+	}
+
+	@Test
+	public void cursoDesconhecidoRecusadoPelaValidacao() throws Exception {
+		cadastrar("Curso Ausente").andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$[0].campo").value("cursoNome"));
+	}
+
+	@Test
+	public void cursoNovoReconhecidoApenasDepoisDoIntervalo() throws Exception {
+		ReflectionTestUtils.setField(cursoCacheService, "intervaloMinimoRecarga", 60000L);
+		cursoCacheService.recarregar();
+
+		jdbcTemplate.update("INSERT INTO curso(nome, categoria) VALUES('Curso Recente', 'Teste')");
+
+		// Dentro do intervalo o nome desconhecido não gera consulta
+		assertEquals(0, consultas(() -> assertNull(cursoCacheService.buscarPeloNome("Curso Recente"))));
+		cadastrar("Curso Recente").andExpect(status().isBadRequest());
+
+		// Passado o intervalo, o primeiro nome desconhecido recarrega os cursos
+		ReflectionTestUtils.setField(cursoCacheService, "ultimaRecarga", System.currentTimeMillis() - 60000L);
+		assertEquals(1, consultas(() -> assertNotNull(cursoCacheService.buscarPeloNome("Curso Recente"))));
+		cadastrar("Curso Recente").andExpect(status().isCreated());
+
+		// E o intervalo recomeça
+		assertEquals(0, consultas(() -> assertNull(cursoCacheService.buscarPeloNome("Curso Inexistente"))));
+	}
+
+	private static long consultas(Runnable codigo) {
+		return ContadorDeConsultas.contar(codigo).getTotal();
+	}
+
+	private ResultActions cadastrar(String cursoNome) throws Exception {
+		return mockMvc.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, Login.autorizacao(mockMvc))
+				.contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"Tópico do cache de cursos\","
+						+ "\"mensagem\":\"Mensagem do teste do cache\",\"cursoNome\":\"" + cursoNome + "\"}"));
+	}
+
+}
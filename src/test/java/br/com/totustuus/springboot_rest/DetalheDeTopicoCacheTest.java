@@ -0,0 +1,89 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import br.com.totustuus.config.cache.DetalheDeTopicoInvalidador;
+import br.com.totustuus.model.dto.TopicoDetalheResponseDTO;
+import br.com.totustuus.repository.TopicoRepository;
+
+/**
+ * Uma leitura do detalhe que começou antes de uma alteração não pode deixar o
+ * conteúdo antigo no cache "detalheDeTopico" depois dela (ver CacheVersionado).
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class DetalheDeTopicoCacheTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+	}
+
+	/*
+	 * Reproduz, passo a passo e com o cache de verdade, o que o @Cacheable do
+	 * detalhar() faz quando um PATCH é concluído no meio da leitura.
+	 */
+	@Test
+	public void cargaAnteriorAAlteracaoNaoFicaNoCache() throws Exception {
+		String autorizacao = Login.autorizacao(mockMvc);
+		Long id = 3L; // Tópico do data.sql: o detalhe precisa do autor, que o cadastro não informa
+
+		Cache cache = cacheManager.getCache(DetalheDeTopicoInvalidador.CACHE);
+
+		// 1. A leitura não encontra o tópico no cache e o lê do banco
+		assertNull(cache.get(id));
+		ResponseEntity<TopicoDetalheResponseDTO> lidoAntes = transactionTemplate.execute(
+				(status) -> ResponseEntity.ok(new TopicoDetalheResponseDTO(topicoRepository.carregarDetalhe(id).get())));
+
+		// 2. Um PATCH altera o tópico; após o commit, a entrada é removida do cache
+		mockMvc.perform(patch("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao)
+				.header(HttpHeaders.IF_MATCH, "\"" + lidoAntes.getBody().getVersao() + "\"")
+				.contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"Depois da alteracao\"}"))
+				.andExpect(status().isOk());
+
+		// 3. A leitura termina e grava no cache o que leu antes da alteração
+		cache.put(id, lidoAntes);
+
+		mockMvc.perform(get("/topicos/" + id)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.titulo").value("Depois da alteracao"))
+				.andExpect(jsonPath("$.versao").value(lidoAntes.getBody().getVersao() + 1));
+
+		assertEquals("Depois da alteracao",
+				((TopicoDetalheResponseDTO) ((ResponseEntity<?>) cache.get(id).get()).getBody()).getTitulo());
+	}
+
+}
@@ -0,0 +1,65 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import br.com.totustuus.model.Topico;
+import br.com.totustuus.repository.TopicoRepository;
+
+/**
+ * Confere o formato da massa gerada pelo GeradorDeMassa (profile "massa"), em
+ * uma versão pequena.
+ * 
+ * O banco é separado (jdbc:h2:mem:massa): os outros testes usam um contexto
+ * do Spring sem o profile, e os dois contextos ficam abertos ao mesmo tempo.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "forum.massa.cursos=20", "forum.massa.usuarios=500", "forum.massa.topicos=5000",
+		"spring.datasource.url=jdbc:h2:mem:massa" })
+@ActiveProfiles("massa")
+public class GeradorDeMassaTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TopicoRepository topicoRepository;
+
+	@Test
+	public void massaTemCursosConcentradosETopicosComMuitasRespostas() {
+		// 3 tópicos do data.sql + 5000 gerados
+		assertEquals(Long.valueOf(5003), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM topico", Long.class));
+
+		// Sem assimetria, cada um dos 20 cursos teria 250 tópicos
+		Long cursoMaisMovimentado = jdbcTemplate.queryForObject(
+				"SELECT MAX(total) FROM (SELECT COUNT(*) total FROM topico GROUP BY curso_id)", Long.class);
+		assertTrue("Tópicos no curso mais movimentado: " + cursoMaisMovimentado, cursoMaisMovimentado > 1000);
+
+		Long maiorQuantidadeDeRespostas = jdbcTemplate.queryForObject(
+				"SELECT MAX(total) FROM (SELECT COUNT(*) total FROM resposta GROUP BY topico_id)", Long.class);
+		assertTrue("Respostas no tópico mais respondido: " + maiorQuantidadeDeRespostas,
+				maiorQuantidadeDeRespostas >= 100);
+	}
+
+	@Test
+	public void topicoCadastradoDepoisDaMassaNaoRepeteId() {
+		Long maiorId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM topico", Long.class);
+
+		Topico topico = new Topico();
+		topico.setTitulo("Depois da massa");
+		topico.setMensagem("Tópico cadastrado depois da massa");
+		topicoRepository.save(topico);
+
+		assertTrue(topico.getId() > maiorId);
+		topicoRepository.delete(topico);
+	}
+
+}
@@ -0,0 +1,80 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * O cache "listaDeTopicosPorPagina" não pode continuar entregando uma página
+ * sem filtro desatualizada depois que um tópico é criado ou removido, não
+ * importa qual seja a página (ver ListaDeTopicosInvalidador).
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ListaDeTopicosCacheTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+	}
+
+	@Test
+	public void ultimaPaginaETotalAcompanhamCriacaoERemocao() throws Exception {
+		long total = pagina(0).get("totalElements").asLong();
+
+		// Com sort=id,asc e size=1, o próximo tópico criado fica na página "total"
+		JsonNode depoisDoFim = pagina(total);
+		assertEquals(0, depoisDoFim.get("content").size());
+
+		String autorizacao = Login.autorizacao(mockMvc);
+		String localizacao = mockMvc
+				.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, autorizacao)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"Cache da lista\","
+								+ "\"mensagem\":\"Tópico criado pelo teste\",\"cursoNome\":\"HTML 5\"}"))
+				.andExpect(status().isCreated()).andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		long id = Long.parseLong(localizacao.substring(localizacao.lastIndexOf('/') + 1));
+
+		JsonNode comONovo = pagina(total);
+		assertEquals(id, comONovo.get("content").get(0).get("id").asLong());
+		assertEquals(total + 1, comONovo.get("totalElements").asLong());
+		assertEquals(total + 1, pagina(0).get("totalElements").asLong());
+
+		mockMvc.perform(delete("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao))
+				.andExpect(status().isOk());
+
+		assertEquals(0, pagina(total).get("content").size());
+		assertEquals(total, pagina(0).get("totalElements").asLong());
+	}
+
+	private JsonNode pagina(long numero) throws Exception {
+		String corpo = mockMvc
+				.perform(get("/topicos/paginaNoParametro").param("page", String.valueOf(numero)).param("size", "1")
+						.param("sort", "id,asc"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(corpo);
+	}
+
+}
@@ -0,0 +1,42 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Login com o usuário do data.sql, para os testes que chamam endpoints
+ * protegidos.
+ */
+public final class Login {
+
+	public static final String EMAIL = "aluno@email.com";
+	public static final String SENHA = "123456";
+
+	private Login() {
+	}
+
+	/**
+	 * @return resposta de POST /auth (token, tipo e refreshToken)
+	 */
+	public static JsonNode autenticar(MockMvc mockMvc) throws Exception {
+		String resposta = mockMvc
+				.perform(post("/auth").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\":\"" + EMAIL + "\",\"senha\":\"" + SENHA + "\"}"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return new ObjectMapper().readTree(resposta);
+	}
+
+	/**
+	 * @return valor do cabeçalho Authorization ("Bearer ...")
+	 */
+	public static String autorizacao(MockMvc mockMvc) throws Exception {
+		return "Bearer " + autenticar(mockMvc).get("token").asText();
+	}
+
+}
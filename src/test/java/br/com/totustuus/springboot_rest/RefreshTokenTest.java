@@ -0,0 +1,117 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.totustuus.security.RefreshTokenService;
+
+/**
+ * Rotação dos refresh tokens (ver RefreshTokenService): cada token vale uma
+ * vez, o reuso de um token já trocado revoga a sessão inteira, e cada usuário
+ * tem um número limitado de sessões.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class RefreshTokenTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+	}
+
+	@Test
+	public void cadaRenovacaoDevolveUmNovoRefreshToken() throws Exception {
+		String primeiro = Login.autenticar(mockMvc).get("refreshToken").asText();
+
+		String segundo = renovado(renovar(primeiro).andExpect(status().isOk()));
+		assertNotEquals(primeiro, segundo);
+
+		String terceiro = renovado(renovar(segundo).andExpect(status().isOk()));
+		assertNotEquals(segundo, terceiro);
+	}
+
+	@Test
+	public void reusoDeUmTokenTrocadoRevogaASessao() throws Exception {
+		String primeiro = Login.autenticar(mockMvc).get("refreshToken").asText();
+		String segundo = renovado(renovar(primeiro).andExpect(status().isOk()));
+
+		// Alguém usou uma cópia do token já trocado
+		renovar(primeiro).andExpect(status().isBadRequest());
+
+		// O token que o cliente legítimo recebeu também deixa de valer
+		renovar(segundo).andExpect(status().isBadRequest());
+
+		// Outra sessão (outro login) não é afetada
+		String outraSessao = Login.autenticar(mockMvc).get("refreshToken").asText();
+		renovar(outraSessao).andExpect(status().isOk());
+	}
+
+	@Test
+	public void loginAlemDoLimiteRevogaASessaoMaisAntiga() {
+		RefreshTokenService servico = new RefreshTokenService(60000, 2);
+
+		String maisAntiga = servico.gerar(1L);
+		String segunda = servico.gerar(1L);
+		String terceira = servico.gerar(1L);
+		String deOutroUsuario = servico.gerar(2L);
+
+		assertNull(servico.rotacionar(maisAntiga));
+		assertNotNull(servico.rotacionar(segunda));
+		assertEquals(Long.valueOf(1), servico.rotacionar(terceira).getUsuarioId());
+		assertEquals(Long.valueOf(2), servico.rotacionar(deOutroUsuario).getUsuarioId());
+	}
+
+	@Test
+	public void reusoDetectadoMesmoDepoisDeMuitasRenovacoes() {
+		RefreshTokenService servico = new RefreshTokenService(60000, 2);
+
+		String primeiro = servico.gerar(1L);
+		String atual = primeiro;
+		for (int renovacao = 0; renovacao < 50; renovacao++)
+			atual = servico.rotacionar(atual).getRefreshToken();
+
+		// Tokens que não são de nenhuma sessão são apenas recusados, sem afetar a sessão
+		assertNull(servico.rotacionar("nao-eh-um-token"));
+		assertNull(servico.rotacionar("sessao-inexistente.abc"));
+		atual = servico.rotacionar(atual).getRefreshToken();
+
+		// Só o token atual da sessão é guardado, mas o primeiro ainda é reconhecido como reuso
+		assertNull(servico.rotacionar(primeiro));
+		assertNull(servico.rotacionar(atual));
+	}
+
+	private ResultActions renovar(String refreshToken) throws Exception {
+		return mockMvc.perform(post("/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"refreshToken\":\"" + refreshToken + "\"}"));
+	}
+
+	private String renovado(ResultActions resposta) throws Exception {
+		return objectMapper.readTree(resposta.andReturn().getResponse().getContentAsString()).get("refreshToken")
+				.asText();
+	}
+
+}
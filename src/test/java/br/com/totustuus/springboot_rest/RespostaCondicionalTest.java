@@ -0,0 +1,118 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * GET condicional dos tópicos (ver TopicoCondicionalInterceptor): 304 enquanto
+ * nada mudou, inclusive depois de alterações em outros tópicos, e 200 com um
+ * novo ETag (ou Last-Modified) assim que o conteúdo muda.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class RespostaCondicionalTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	private MockMvc mockMvc;
+	private String autorizacao;
+
+	@Before
+	public void preparar() throws Exception {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		autorizacao = Login.autorizacao(mockMvc);
+	}
+
+	@Test
+	public void detalhe() throws Exception {
+		String etag = etag("/topicos/2");
+		assertEquals(etag, "\"" + versao("/topicos/2") + "\"");
+
+		// Em cache: 304 sem nenhuma consulta
+		mockMvc.perform(get("/topicos/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified()).andExpect(ConsultasPorRequisicao.noMaximo(0));
+
+		// Outro tópico alterado: o 2 continua igual
+		alterarTitulo(3, etag("/topicos/3"), "Outro tópico alterado");
+		mockMvc.perform(get("/topicos/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		// O ETag recebido no GET serve de If-Match no PATCH
+		alterarTitulo(2, etag, "Tópico 2 alterado");
+		String novo = mockMvc.perform(get("/topicos/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(etag, novo);
+	}
+
+	@Test
+	public void detalheComIfModifiedSince() throws Exception {
+		MockHttpServletResponse primeira = mockMvc.perform(get("/topicos/1")).andExpect(status().isOk()).andReturn()
+				.getResponse();
+		String ultimaAlteracao = primeira.getHeader(HttpHeaders.LAST_MODIFIED);
+		assertNotNull(ultimaAlteracao);
+
+		// O 304 sai do interceptador, antes do controller
+		mockMvc.perform(get("/topicos/1").header(HttpHeaders.IF_MODIFIED_SINCE, ultimaAlteracao))
+				.andExpect(status().isNotModified()).andExpect(ConsultasPorRequisicao.noMaximo(0));
+
+		alterarTitulo(3, etag("/topicos/3"), "Outro tópico alterado");
+		mockMvc.perform(get("/topicos/1").header(HttpHeaders.IF_MODIFIED_SINCE, ultimaAlteracao))
+				.andExpect(status().isNotModified());
+
+		// Alterado no mesmo segundo da data recebida: ainda assim, uma data posterior
+		alterarTitulo(1, etag("/topicos/1"), "Tópico 1 alterado");
+		MockHttpServletResponse resposta = mockMvc
+				.perform(get("/topicos/1").header(HttpHeaders.IF_MODIFIED_SINCE, ultimaAlteracao))
+				.andExpect(status().isOk()).andReturn().getResponse();
+		assertTrue(resposta.getDateHeader(HttpHeaders.LAST_MODIFIED) > primeira.getDateHeader(HttpHeaders.LAST_MODIFIED));
+	}
+
+	@Test
+	public void lista() throws Exception {
+		String url = "/topicos?pagina=0&quantidade=10&cursoNome=Spring Boot";
+		String etag = etag(url);
+
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified())
+				.andExpect(ConsultasPorRequisicao.noMaximo(0));
+
+		alterarTitulo(1, etag("/topicos/1"), "Dúvida alterada");
+
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+		assertNotEquals(etag, etag(url));
+	}
+
+	private String etag(String url) throws Exception {
+		return mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+	}
+
+	private long versao(String url) throws Exception {
+		String corpo = mockMvc.perform(get(url)).andReturn().getResponse().getContentAsString();
+		return new com.fasterxml.jackson.databind.ObjectMapper().readTree(corpo).get("versao").asLong();
+	}
+
+	private void alterarTitulo(long id, String ifMatch, String titulo) throws Exception {
+		mockMvc.perform(patch("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao)
+				.header(HttpHeaders.IF_MATCH, ifMatch).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"titulo\":\"" + titulo + "\"}")).andExpect(status().isOk());
+	}
+
+}
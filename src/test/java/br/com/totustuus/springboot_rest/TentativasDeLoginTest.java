@@ -0,0 +1,112 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.context.WebApplicationContext;
+
+import br.com.totustuus.security.TentativasDeLogin;
+
+/**
+ * Limite de tentativas de login (ver TentativasDeLogin): depois de 5 senhas
+ * erradas o e-mail é bloqueado para aquele IP, mas continua entrando de outro
+ * IP, e logins simultâneos não conseguem passar do limite.
+ *
+ * Cada teste usa IPs próprios, porque o contexto (e os contadores) é
+ * compartilhado com os outros testes.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TentativasDeLoginTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+	}
+
+	@Test
+	public void senhaErradaBloqueiaOEmailApenasParaOMesmoIp() throws Exception {
+		for (int tentativa = 1; tentativa <= 5; tentativa++)
+			mockMvc.perform(login("10.0.0.1", "senha-errada")).andExpect(status().isBadRequest());
+
+		// Bloqueado antes de verificar a senha, mesmo com a senha correta
+		mockMvc.perform(login("10.0.0.1", Login.SENHA)).andExpect(status().isTooManyRequests())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+		// Quem errou a senha não impede o usuário de entrar de outro endereço
+		mockMvc.perform(login("10.0.0.2", Login.SENHA)).andExpect(status().isOk());
+	}
+
+	@Test
+	public void loginComSucessoNaoContaComoTentativa() throws Exception {
+		for (int tentativa = 1; tentativa <= 10; tentativa++)
+			mockMvc.perform(login("10.0.0.3", Login.SENHA)).andExpect(status().isOk());
+
+		for (int tentativa = 1; tentativa <= 5; tentativa++)
+			mockMvc.perform(login("10.0.0.3", "senha-errada")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void tentativasSimultaneasNaoPassamDoLimite() throws Exception {
+		TentativasDeLogin tentativas = new TentativasDeLogin(5, 20, 15);
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+
+		try {
+			List<Callable<Boolean>> reservas = new ArrayList<>();
+			for (int i = 0; i < 50; i++)
+				reservas.add(() -> tentativas.reservar("aluno@email.com", "10.0.0.4"));
+
+			int permitidas = 0;
+			for (Future<Boolean> reserva : threads.invokeAll(reservas))
+				permitidas += reserva.get() ? 1 : 0;
+
+			assertEquals(5, permitidas);
+		} finally {
+			threads.shutdownNow();
+		}
+
+		// Limite por IP: 20 tentativas, quaisquer que sejam os e-mails
+		for (int i = 0; i < 20; i++)
+			assertTrue(tentativas.reservar("usuario" + i + "@email.com", "10.0.0.5"));
+		assertFalse(tentativas.reservar("outro@email.com", "10.0.0.5"));
+
+		// Uma tentativa devolvida (senha não verificada) libera a vaga
+		tentativas.devolver("usuario0@email.com", "10.0.0.5");
+		assertTrue(tentativas.reservar("outro@email.com", "10.0.0.5"));
+	}
+
+	private MockHttpServletRequestBuilder login(String ip, String senha) {
+		return post("/auth").with((requisicao) -> {
+			requisicao.setRemoteAddr(ip);
+			return requisicao;
+		}).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + Login.EMAIL + "\",\"senha\":\"" + senha + "\"}");
+	}
+
+}
@@ -0,0 +1,164 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Busca textual (ver TopicoBuscaService): acentos, maiúsculas e palavras
+ * ignoradas, relevância (título acima da mensagem, termos raros acima dos
+ * comuns), página além do fim e atualização do índice depois de cadastrar,
+ * atualizar e remover.
+ *
+ * O índice é atualizado por outra thread, então as verificações aguardam até
+ * o resultado esperado aparecer. Cada teste usa palavras inventadas, que não
+ * existem em nenhum outro tópico.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoBuscaTest {
+
+	// Tempo máximo para o índice refletir uma alteração
+	private static final long ESPERA_MAXIMA = 5000;
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+	private String autorizacao;
+
+	@Before
+	public void preparar() throws Exception {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		autorizacao = Login.autorizacao(mockMvc);
+	}
+
+	@Test
+	public void acentosMaiusculasEPalavrasIgnoradas() throws Exception {
+		long id = cadastrar("Configuração do Trávolez", "Mensagem sobre a configuração");
+		aguardar("travolez", 1);
+
+		assertEquals(id, buscar("TRÁVOLEZ", 0, 10).get("content").get(0).get("id").asLong());
+		assertEquals(1, total("Travolez"));
+
+		// Só palavras ignoradas: nenhum termo sobra para buscar
+		assertEquals(0, total("de que para com"));
+	}
+
+	@Test
+	public void tituloValeMaisQueMensagemETermoRaroMaisQueComum() throws Exception {
+		long naMensagem = cadastrar("Outro tópico qualquer", "Essa mensagem cita frenzal apenas");
+		long noTitulo = cadastrar("Tópico Frenzal", "Mensagem sem o termo buscado");
+		aguardar("frenzal", 2);
+
+		JsonNode pagina = buscar("frenzal", 0, 10);
+		assertEquals(noTitulo, pagina.get("content").get(0).get("id").asLong());
+		assertEquals(naMensagem, pagina.get("content").get(1).get("id").asLong());
+
+		// "glindor" está em três tópicos, "skavit" em apenas um
+		cadastrar("Primeiro comum", "Mensagem com glindor repetido");
+		cadastrar("Segundo comum", "Mensagem com glindor repetido");
+		cadastrar("Terceiro comum", "Mensagem com glindor repetido");
+		long raro = cadastrar("Tópico raro", "Mensagem com skavit apenas");
+		aguardar("glindor skavit", 4);
+
+		assertEquals(raro, buscar("glindor skavit", 0, 10).get("content").get(0).get("id").asLong());
+	}
+
+	@Test
+	public void paginaAlemDoFimVemVaziaComOTotal() throws Exception {
+		cadastrar("Tópico Quorbil", "Primeira mensagem de teste");
+		cadastrar("Tópico Quorbil", "Segunda mensagem de teste");
+		aguardar("quorbil", 2);
+
+		JsonNode pagina = buscar("quorbil", 5, 10);
+		assertEquals(0, pagina.get("content").size());
+		assertEquals(2, pagina.get("totalElements").asInt());
+
+		assertEquals(1, buscar("quorbil", 1, 1).get("content").size());
+	}
+
+	@Test
+	public void indiceAcompanhaCadastroAtualizacaoERemocao() throws Exception {
+		long id = cadastrar("Tópico Morvilan", "Mensagem do tópico original");
+		aguardar("morvilan", 1);
+
+		mockMvc.perform(put("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"titulo\":\"Tópico Quenthar\",\"mensagem\":\"Mensagem do tópico atualizado\"}"))
+				.andExpect(status().isOk());
+		aguardar("quenthar", 1);
+		assertEquals(0, total("morvilan"));
+
+		mockMvc.perform(delete("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao))
+				.andExpect(status().isOk());
+		aguardar("quenthar", 0);
+
+		// Remoção em lote por curso e período: os ids vão no evento e saem do índice
+		LocalDateTime inicio = LocalDateTime.now();
+		cadastrar("Tópico Brastel", "Primeira mensagem em lote");
+		cadastrar("Tópico Brastel", "Segunda mensagem em lote");
+		aguardar("brastel", 2);
+
+		mockMvc.perform(post("/topicos/lote/remocao").header(HttpHeaders.AUTHORIZATION, autorizacao)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"cursoNome\":\"HTML 5\",\"criadoDe\":\"" + inicio + "\"}")).andExpect(status().isOk());
+		aguardar("brastel", 0);
+	}
+
+	private long cadastrar(String titulo, String mensagem) throws Exception {
+		String localizacao = mockMvc
+				.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, autorizacao)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"" + titulo
+								+ "\",\"mensagem\":\"" + mensagem + "\",\"cursoNome\":\"HTML 5\"}"))
+				.andExpect(status().isCreated()).andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		return Long.parseLong(localizacao.substring(localizacao.lastIndexOf('/') + 1));
+	}
+
+	private JsonNode buscar(String q, int pagina, int tamanho) throws Exception {
+		String corpo = mockMvc
+				.perform(get("/topicos/busca").param("q", q).param("page", String.valueOf(pagina))
+						.param("size", String.valueOf(tamanho)))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(corpo);
+	}
+
+	private int total(String q) throws Exception {
+		return buscar(q, 0, 10).get("totalElements").asInt();
+	}
+
+	private void aguardar(String q, int esperado) throws Exception {
+		long limite = System.currentTimeMillis() + ESPERA_MAXIMA;
+		int encontrados = total(q);
+
+		while (encontrados != esperado && System.currentTimeMillis() < limite) {
+			Thread.sleep(20);
+			encontrados = total(q);
+		}
+
+		assertTrue("\"" + q + "\": " + encontrados + " tópicos (esperado: " + esperado + ")", encontrados == esperado);
+	}
+
+}
@@ -0,0 +1,195 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.totustuus.event.TopicoAlteradoEvent;
+import br.com.totustuus.service.TopicoContadorService;
+
+/**
+ * Listagem sem COUNT (/topicos/semContagem, um Slice) e totais mantidos em
+ * memória (/topicos/total, ver TopicoContadorService), inclusive com várias
+ * alterações ao mesmo tempo e remoções em lote sem os ids.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoContadorTest {
+
+	private static final String CURSO = "HTML 5";
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TopicoContadorService topicoContadorService;
+
+	@Autowired
+	private ApplicationEventPublisher publicador;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+	private String autorizacao;
+
+	@Before
+	public void preparar() throws Exception {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		autorizacao = Login.autorizacao(mockMvc);
+	}
+
+	@Test
+	public void sliceNaoContaOsRegistros() throws Exception {
+		String corpo = mockMvc
+				.perform(get("/topicos/semContagem").param("page", "0").param("size", "2").param("sort", "id,asc"))
+				.andExpect(status().isOk()).andExpect(ConsultasPorRequisicao.noMaximo(1)).andReturn()
+				.getResponse().getContentAsString();
+		JsonNode fatia = objectMapper.readTree(corpo);
+
+		assertEquals(2, fatia.get("content").size());
+		assertEquals(1, fatia.get("content").get(0).get("id").asLong());
+		assertTrue(fatia.get("first").asBoolean());
+		assertFalse(fatia.get("last").asBoolean());
+		assertFalse(fatia.has("totalElements"));
+
+		long total = topicoContadorService.total();
+		corpo = mockMvc.perform(get("/topicos/semContagem").param("page", String.valueOf(total)).param("size", "1"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		fatia = objectMapper.readTree(corpo);
+
+		assertEquals(0, fatia.get("content").size());
+		assertTrue(fatia.get("last").asBoolean());
+	}
+
+	@Test
+	public void totalAcompanhaCadastroERemocao() throws Exception {
+		assertTotaisIguaisAoBanco();
+		long geral = total(null);
+		long doCurso = total(CURSO);
+
+		long id = cadastrar("Tópico do contador");
+		assertEquals(geral + 1, total(null));
+		assertEquals(doCurso + 1, total(CURSO));
+
+		mockMvc.perform(delete("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao))
+				.andExpect(status().isOk());
+		assertEquals(geral, total(null));
+		assertEquals(doCurso, total(CURSO));
+
+		assertEquals(0, total("Curso Inexistente"));
+	}
+
+	/*
+	 * Uma remoção em lote acima do limite de ids (ver TopicoLoteService) publica
+	 * apenas a quantidade de tópicos de cada curso. Aqui os tópicos são removidos
+	 * direto no banco e o evento é publicado à mão, como o TopicoLoteService faria.
+	 */
+	@Test
+	public void remocaoEmLoteSemIdsDescontaAQuantidadeDoCurso() throws Exception {
+		cadastrar("Tópico removido em lote");
+		cadastrar("Tópico removido em lote");
+		cadastrar("Tópico removido em lote");
+		assertTotaisIguaisAoBanco();
+
+		int removidos = jdbcTemplate.update("DELETE FROM topico WHERE titulo = ?", "Tópico removido em lote");
+		assertEquals(3, removidos);
+
+		publicador.publishEvent(TopicoAlteradoEvent.emLote(TopicoAlteradoEvent.Tipo.REMOVIDO,
+				Collections.singletonMap(CURSO, (long) removidos)));
+		assertTotaisIguaisAoBanco();
+	}
+
+	/*
+	 * Cadastros, remoções e remoções em lote em várias threads ao mesmo tempo. No
+	 * final os totais em memória precisam bater com o banco.
+	 */
+	@Test
+	public void totaisContinuamCorretosComAlteracoesAoMesmoTempo() throws Exception {
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<?>> alteracoes = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				alteracoes.add(threads.submit(() -> {
+					List<Long> ids = new ArrayList<>();
+					for (int i = 0; i < 10; i++) {
+						long id = cadastrar("Tópico concorrente");
+						if (i % 3 == 0)
+							mockMvc.perform(delete("/topicos/" + id).header(HttpHeaders.AUTHORIZATION, autorizacao))
+									.andExpect(status().isOk());
+						else
+							ids.add(id);
+					}
+
+					mockMvc.perform(post("/topicos/lote/remocao").header(HttpHeaders.AUTHORIZATION, autorizacao)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{\"ids\":" + ids.subList(0, ids.size() / 2) + "}")).andExpect(status().isOk());
+					return null;
+				}));
+			}
+
+			for (Future<?> alteracao : alteracoes)
+				alteracao.get(60, TimeUnit.SECONDS);
+		} finally {
+			threads.shutdownNow();
+		}
+
+		assertTotaisIguaisAoBanco();
+	}
+
+	private void assertTotaisIguaisAoBanco() throws Exception {
+		assertEquals((long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM topico", Long.class), total(null));
+		assertEquals((long) jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM topico t JOIN curso c ON c.id = t.curso_id WHERE c.nome = ?", Long.class, CURSO),
+				total(CURSO));
+	}
+
+	private long cadastrar(String titulo) throws Exception {
+		String localizacao = mockMvc
+				.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, autorizacao)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"" + titulo
+								+ "\",\"mensagem\":\"Mensagem do teste dos totais\",\"cursoNome\":\"" + CURSO + "\"}"))
+				.andExpect(status().isCreated()).andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		return Long.parseLong(localizacao.substring(localizacao.lastIndexOf('/') + 1));
+	}
+
+	private long total(String cursoNome) throws Exception {
+		String corpo = mockMvc
+				.perform(cursoNome == null ? get("/topicos/total") : get("/topicos/total").param("cursoNome", cursoNome))
+				.andExpect(status().isOk()).andExpect(ConsultasPorRequisicao.noMaximo(0)).andReturn().getResponse()
+				.getContentAsString();
+		return objectMapper.readTree(corpo).get("total").asLong();
+	}
+
+}
@@ -0,0 +1,115 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Paginação por cursor (ver listaPorCursor() no TopicoController): seguindo o
+ * "proximo" de cada resposta, todos os tópicos são entregues uma única vez, na
+ * ordem de (dataCriacao, id), mesmo com datas repetidas. O limite é restrito a
+ * 100 e parâmetros inválidos devolvem 400.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoCursorTest {
+
+	private static final String CURSO = "HTML 5";
+
+	// Bem acima da sequence, para não disputar ids com os tópicos cadastrados pela JPA
+	private static final long PRIMEIRO_ID = 900000;
+	private static final int QUANTIDADE = 105;
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+
+		// Todos com a mesma data: apenas o id desempata
+		for (long id = PRIMEIRO_ID; id < PRIMEIRO_ID + QUANTIDADE; id++)
+			jdbcTemplate.update("INSERT INTO topico (id, titulo, mensagem, data_criacao, status, autor_id, curso_id, versao) "
+					+ "SELECT ?, 'Cursor', 'Tópico do teste de cursor', '2000-01-01 00:00:00', 'NAO_RESPONDIDO', 1, id, 0 "
+					+ "FROM curso WHERE nome = ?", id, CURSO);
+	}
+
+	@After
+	public void limpar() {
+		jdbcTemplate.update("DELETE FROM topico WHERE id >= ?", PRIMEIRO_ID);
+	}
+
+	@Test
+	public void seguindoOCursorTodosOsTopicosVemUmaVezEmOrdem() throws Exception {
+		List<Long> esperados = jdbcTemplate.queryForList("SELECT t.id FROM topico t JOIN curso c ON c.id = t.curso_id "
+				+ "WHERE c.nome = ? ORDER BY t.data_criacao DESC, t.id DESC", Long.class, CURSO);
+
+		List<Long> recebidos = new ArrayList<>();
+		String proximo = null;
+		int paginas = 0;
+
+		do {
+			MockHttpServletRequestBuilder requisicao = get("/topicos").param("limit", "10").param("cursoNome", CURSO);
+			if (proximo != null)
+				requisicao.param("after", proximo);
+
+			JsonNode pagina = ler(requisicao);
+			assertTrue(pagina.get("topicos").size() <= 10);
+			pagina.get("topicos").forEach((topico) -> recebidos.add(topico.get("id").asLong()));
+
+			proximo = pagina.get("proximo").isNull() ? null : pagina.get("proximo").asText();
+			paginas++;
+		} while (proximo != null && paginas <= esperados.size());
+
+		assertEquals(esperados, recebidos);
+	}
+
+	@Test
+	public void limiteAcimaDoMaximoEhReduzidoPara100() throws Exception {
+		JsonNode pagina = ler(get("/topicos").param("limit", "1000").param("cursoNome", CURSO));
+
+		assertEquals(100, pagina.get("topicos").size());
+		assertTrue(pagina.get("proximo").isTextual());
+	}
+
+	@Test
+	public void limiteOuCursorInvalidoDevolve400() throws Exception {
+		mockMvc.perform(get("/topicos").param("limit", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/topicos").param("limit", "-5")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/topicos").param("limit", "10").param("after", "nao-eh-um-cursor"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private JsonNode ler(MockHttpServletRequestBuilder requisicao) throws Exception {
+		String corpo = mockMvc.perform(requisicao).andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsString();
+		return objectMapper.readTree(corpo);
+	}
+
+}
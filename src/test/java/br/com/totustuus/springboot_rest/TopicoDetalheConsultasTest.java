@@ -0,0 +1,95 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.totustuus.controller.TopicoController;
+import br.com.totustuus.model.Curso;
+import br.com.totustuus.model.Resposta;
+import br.com.totustuus.model.Topico;
+import br.com.totustuus.model.Usuario;
+import br.com.totustuus.model.dto.TopicoDetalheResponseDTO;
+
+/**
+ * Garante que o detalhe do tópico (GET /topicos/{id}) é carregado com uma
+ * quantidade fixa de consultas, não importando quantas respostas (e autores
+ * diferentes) o tópico tenha.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class TopicoDetalheConsultasTest {
+
+	@Autowired
+	private TopicoController topicoController;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	public void quantidadeDeConsultasNaoDependeDaQuantidadeDeRespostas() {
+		long comUmaResposta = consultasParaDetalhar(criarTopicoComRespostas(1), 1);
+		long comVinteRespostas = consultasParaDetalhar(criarTopicoComRespostas(20), 20);
+
+		/*
+		 * Uma consulta para o tópico com seus relacionamentos e as consultas (com
+		 * subselect) para os perfis dos autores.
+		 */
+		assertEquals(comUmaResposta, comVinteRespostas);
+		assertTrue("Consultas executadas: " + comVinteRespostas, comVinteRespostas <= 3);
+	}
+
+	private long consultasParaDetalhar(Long id, int respostasEsperadas) {
+		Statistics estatisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+				.getStatistics();
+		estatisticas.setStatisticsEnabled(true);
+		estatisticas.clear();
+
+		TopicoDetalheResponseDTO detalhe = topicoController.detalhar(id).getBody();
+
+		assertEquals(respostasEsperadas, detalhe.getRespostas().size());
+		return estatisticas.getPrepareStatementCount();
+	}
+
+	/*
+	 * Cada resposta é de um autor diferente, que é o pior caso para o N+1.
+	 */
+	private Long criarTopicoComRespostas(int quantidade) {
+		Topico topico = new Topico();
+		topico.setTitulo("Tópico de teste");
+		topico.setMensagem("Mensagem do tópico de teste");
+		topico.setAutor(entityManager.find(Usuario.class, 1L));
+		topico.setCurso(entityManager.find(Curso.class, 1L));
+		entityManager.persist(topico);
+
+		for (int i = 0; i < quantidade; i++) {
+			Usuario autor = new Usuario();
+			autor.setNome("Autor " + i);
+			autor.setEmail("autor" + i + "@email.com");
+			entityManager.persist(autor);
+
+			Resposta resposta = new Resposta();
+			resposta.setMensagem("Resposta " + i);
+			resposta.setTopico(topico);
+			resposta.setAutor(autor);
+			entityManager.persist(resposta);
+		}
+
+		entityManager.flush();
+		entityManager.clear(); // Obriga o detalhe a buscar tudo no banco
+
+		return topico.getId();
+	}
+
+}
@@ -0,0 +1,166 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+
+import br.com.totustuus.controller.TopicoController;
+
+/**
+ * Exportação em NDJSON (ver TopicoController.exportar()): um objeto JSON por
+ * linha, o content type e o que acontece quando o cliente desconecta no meio
+ * da exportação.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoExportacaoTest {
+
+	private static final String NDJSON = "application/x-ndjson";
+	private static final String CURSO = "Spring Boot";
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private TopicoController topicoController;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void preparar() {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+	}
+
+	@Test
+	public void umObjetoJsonPorLinha() throws Exception {
+		MvcResult resultado = mockMvc.perform(get("/topicos/export").param("cursoNome", CURSO))
+				.andExpect(status().isOk()).andReturn();
+
+		assertTrue(resultado.getResponse().getContentType().startsWith(NDJSON));
+
+		String corpo = resultado.getResponse().getContentAsString();
+		assertTrue(corpo.endsWith("\n"));
+
+		String[] linhas = corpo.split("\n");
+		long esperados = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM topico t JOIN curso c ON c.id = t.curso_id WHERE c.nome = ?", Long.class, CURSO);
+		assertEquals(esperados, linhas.length);
+
+		for (String linha : linhas) {
+			JsonNode topico = objectMapper.readTree(linha);
+			assertTrue(topico.isObject());
+			assertTrue(topico.get("id").isNumber());
+		}
+	}
+
+	/*
+	 * O cliente desconecta: a escrita na resposta falha com IOException ("Broken
+	 * pipe" em um container de verdade). A exportação precisa parar ali, fechar o
+	 * Stream (o cursor no banco) e devolver a conexão ao pool.
+	 *
+	 * Com mais tópicos do que cabem no buffer do gerador de JSON, a primeira
+	 * escrita acontece no meio da leitura.
+	 */
+	@Test
+	public void clienteDesconectadoFechaOCursorEDevolveAConexao() throws Exception {
+		StringBuilder topicos = new StringBuilder();
+		for (int i = 0; i < 200; i++)
+			topicos.append("{\"titulo\": \"Tópico exportado\", \"mensagem\": \"Tópico para a exportação interrompida\", "
+					+ "\"cursoNome\": \"HTML 5\"}\n");
+		mockMvc.perform(post("/topicos/importacao").header(HttpHeaders.AUTHORIZATION, Login.autorizacao(mockMvc))
+				.contentType(NDJSON).content(topicos.toString())).andExpect(status().isOk());
+
+		ClienteDesconectado resposta = new ClienteDesconectado();
+		try {
+			topicoController.exportar(null, resposta);
+			fail("A exportação deveria falhar ao escrever na resposta");
+		} catch (IOException e) {
+			assertEquals("Broken pipe", e.getMessage());
+		}
+
+		// Nenhuma nova tentativa de escrita depois da falha (a segunda é o flush do fechamento)
+		assertTrue(resposta.tentativas.get() <= 2);
+
+		/*
+		 * O índice de busca (TopicoBuscaService) lê os tópicos importados em outra
+		 * thread e pode estar com uma conexão nesse momento. Uma conexão presa ao
+		 * cursor, por outro lado, nunca voltaria.
+		 */
+		HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+		long limite = System.currentTimeMillis() + 5000;
+		while (pool.getHikariPoolMXBean().getActiveConnections() > 0 && System.currentTimeMillis() < limite)
+			Thread.sleep(20);
+		assertEquals(0, pool.getHikariPoolMXBean().getActiveConnections());
+
+		// A exportação seguinte funciona normalmente
+		mockMvc.perform(get("/topicos/export")).andExpect(status().isOk());
+	}
+
+	private static class ClienteDesconectado extends MockHttpServletResponse {
+
+		private final AtomicInteger tentativas = new AtomicInteger();
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return new ServletOutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[] { (byte) b }, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					tentativas.incrementAndGet();
+					throw new IOException("Broken pipe");
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+				}
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,186 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.totustuus.service.TopicoImportacaoService;
+
+/**
+ * Importação em massa (ver TopicoImportacaoService): NDJSON e array JSON,
+ * erros de validação por lote, JSON mal formado no meio do arquivo e um lote
+ * que falha depois de outros já gravados.
+ *
+ * Os lotes são reduzidos para 2 registros, e cada teste usa um título próprio
+ * para contar, no banco, apenas os seus tópicos.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoImportacaoTest {
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TopicoImportacaoService topicoImportacaoService;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+	private String autorizacao;
+	private Object tamanhoDoLote;
+	private Object errosMaximo;
+
+	@Before
+	public void preparar() throws Exception {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		autorizacao = Login.autorizacao(mockMvc);
+
+		tamanhoDoLote = ReflectionTestUtils.getField(topicoImportacaoService, "tamanhoDoLote");
+		errosMaximo = ReflectionTestUtils.getField(topicoImportacaoService, "errosMaximo");
+		ReflectionTestUtils.setField(topicoImportacaoService, "tamanhoDoLote", 2);
+	}
+
+	@After
+	public void restaurar() {
+		ReflectionTestUtils.setField(topicoImportacaoService, "tamanhoDoLote", tamanhoDoLote);
+		ReflectionTestUtils.setField(topicoImportacaoService, "errosMaximo", errosMaximo);
+	}
+
+	@Test
+	public void aceitaNdjsonEArrayJson() throws Exception {
+		JsonNode ndjson = importar(NDJSON, topico("Importado em NDJSON") + "\n" + topico("Importado em NDJSON")
+				+ "\n" + topico("Importado em NDJSON") + "\n");
+		assertEquals(3, ndjson.get("importados").asInt());
+		assertEquals(2, ndjson.get("lotes").size());
+		assertEquals(3, gravados("Importado em NDJSON"));
+
+		JsonNode array = importar(MediaType.APPLICATION_JSON_VALUE,
+				"[" + topico("Importado em array") + ", " + topico("Importado em array") + "]");
+		assertEquals(2, array.get("importados").asInt());
+		assertTrue(array.get("erro").isNull());
+		assertEquals(2, gravados("Importado em array"));
+	}
+
+	@Test
+	public void errosDeValidacaoFicamNoLoteDoRegistro() throws Exception {
+		JsonNode relatorio = importar(NDJSON, topico("Importado com erros") + "\n" + topico("abc") + "\n"
+				+ topico("Importado com erros", "Curso Inexistente") + "\n" + topico("Importado com erros") + "\n");
+
+		assertEquals(4, relatorio.get("recebidos").asInt());
+		assertEquals(2, relatorio.get("importados").asInt());
+		assertEquals(2, relatorio.get("rejeitados").asInt());
+
+		JsonNode primeiroLote = relatorio.get("lotes").get(0);
+		assertEquals(1, primeiroLote.get("importados").asInt());
+		assertEquals(2, primeiroLote.get("erros").get(0).get("registro").asInt());
+		assertEquals("titulo", primeiroLote.get("erros").get(0).get("campo").asText());
+
+		JsonNode segundoLote = relatorio.get("lotes").get(1);
+		assertEquals(1, segundoLote.get("importados").asInt());
+		assertEquals(3, segundoLote.get("erros").get(0).get("registro").asInt());
+		assertEquals("cursoNome", segundoLote.get("erros").get(0).get("campo").asText());
+
+		assertEquals(2, gravados("Importado com erros"));
+	}
+
+	@Test
+	public void errosAlemDoMaximoSaoApenasContados() throws Exception {
+		ReflectionTestUtils.setField(topicoImportacaoService, "errosMaximo", 3);
+
+		StringBuilder invalidos = new StringBuilder();
+		for (int i = 0; i < 5; i++)
+			invalidos.append(topico("abc")).append("\n");
+
+		JsonNode relatorio = importar(NDJSON, invalidos.toString());
+
+		int listados = 0;
+		for (JsonNode lote : relatorio.get("lotes"))
+			listados += lote.get("erros").size();
+
+		assertEquals(5, relatorio.get("rejeitados").asInt());
+		assertEquals(3, listados);
+		assertEquals(2, relatorio.get("errosOmitidos").asInt());
+	}
+
+	@Test
+	public void jsonMalFormadoNoMeioGravaOsRegistrosAnteriores() throws Exception {
+		JsonNode relatorio = importar(NDJSON, topico("Importado antes do erro") + "\n"
+				+ topico("Importado antes do erro") + "\n" + topico("Importado antes do erro") + "\n"
+				+ "{\"titulo\": \"Sem fechar\n" + topico("Importado antes do erro") + "\n");
+
+		assertEquals(3, relatorio.get("importados").asInt());
+		assertTrue(relatorio.get("erro").asText().startsWith("JSON inválido após o registro 3"));
+		assertEquals(3, gravados("Importado antes do erro"));
+	}
+
+	@Test
+	public void falhaDeUmLoteDevolveORelatorioDosLotesGravados() throws Exception {
+		// O banco recusa esse título: o segundo lote falha no INSERT, depois do primeiro ser gravado
+		jdbcTemplate.execute(
+				"ALTER TABLE topico ADD CONSTRAINT teste_importacao CHECK (titulo <> 'Recusado pelo banco')");
+
+		try {
+			JsonNode relatorio = importar(NDJSON,
+					topico("Importado antes da falha") + "\n" + topico("Importado antes da falha") + "\n"
+							+ topico("Importado antes da falha") + "\n" + topico("Recusado pelo banco") + "\n"
+							+ topico("Importado antes da falha") + "\n");
+
+			assertEquals(2, relatorio.get("importados").asInt());
+			assertEquals(4, relatorio.get("recebidos").asInt());
+			assertEquals(2, relatorio.get("lotes").size());
+			assertEquals(0, relatorio.get("lotes").get(1).get("importados").asInt());
+			assertTrue(relatorio.get("erro").asText().startsWith("Falha ao gravar o lote 2 (registros 3 a 4)"));
+
+			// O lote que falhou foi desfeito por inteiro, e o restante do arquivo não foi lido
+			assertEquals(2, gravados("Importado antes da falha"));
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE topico DROP CONSTRAINT teste_importacao");
+		}
+	}
+
+	private JsonNode importar(String tipo, String corpo) throws Exception {
+		String resposta = mockMvc
+				.perform(post("/topicos/importacao").header(HttpHeaders.AUTHORIZATION, autorizacao)
+						.contentType(tipo).content(corpo))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(resposta);
+	}
+
+	private static String topico(String titulo) {
+		return topico(titulo, "HTML 5");
+	}
+
+	private static String topico(String titulo, String cursoNome) {
+		return "{\"titulo\": \"" + titulo + "\", \"mensagem\": \"Tópico da importação em massa\", \"cursoNome\": \""
+				+ cursoNome + "\"}";
+	}
+
+	private long gravados(String titulo) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM topico WHERE titulo = ?", Long.class, titulo);
+	}
+
+}
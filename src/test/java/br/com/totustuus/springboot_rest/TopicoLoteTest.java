@@ -0,0 +1,122 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Remoção e alteração de status em lote com filtro por curso e período (ver
+ * TopicoLoteService): o DELETE leva junto as respostas, apenas os tópicos do
+ * filtro são afetados e os totais em memória acompanham a remoção.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoLoteTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc mockMvc;
+	private String autorizacao;
+
+	@Before
+	public void preparar() throws Exception {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		autorizacao = Login.autorizacao(mockMvc);
+	}
+
+	@Test
+	public void remocaoPorCursoEPeriodoLevaAsRespostas() throws Exception {
+		// Os tópicos do data.sql são de 2019 e ficam fora do filtro
+		LocalDateTime inicio = LocalDateTime.now();
+
+		long html1 = cadastrar("HTML 5");
+		long html2 = cadastrar("HTML 5");
+		long spring = cadastrar("Spring Boot");
+		responder(html1);
+		responder(html1);
+		responder(spring);
+
+		long totalHtml = total("HTML 5");
+		long totalGeral = total(null);
+
+		assertEquals(2, lote("/topicos/lote/remocao", "{\"cursoNome\":\"HTML 5\",\"criadoDe\":\"" + inicio + "\"}"));
+
+		assertEquals(Long.valueOf(0), jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM topico WHERE id IN (?, ?)", Long.class, html1, html2));
+		assertEquals(Long.valueOf(0),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM resposta WHERE topico_id = ?", Long.class, html1));
+		assertEquals(Long.valueOf(1),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM resposta WHERE topico_id = ?", Long.class, spring));
+		assertEquals(Long.valueOf(1), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM topico WHERE id = 3",
+				Long.class));
+
+		assertEquals(totalHtml - 2, total("HTML 5"));
+		assertEquals(totalGeral - 2, total(null));
+
+		assertEquals(1, lote("/topicos/lote/status",
+				"{\"cursoNome\":\"Spring Boot\",\"criadoDe\":\"" + inicio + "\",\"status\":\"FECHADO\"}"));
+		assertEquals("FECHADO",
+				jdbcTemplate.queryForObject("SELECT status FROM topico WHERE id = ?", String.class, spring));
+		assertEquals(Long.valueOf(1),
+				jdbcTemplate.queryForObject("SELECT versao FROM topico WHERE id = ?", Long.class, spring));
+
+		mockMvc.perform(delete("/topicos/" + spring).header(HttpHeaders.AUTHORIZATION, autorizacao))
+				.andExpect(status().isOk());
+		assertEquals(Long.valueOf(0),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM resposta WHERE topico_id = ?", Long.class, spring));
+	}
+
+	private long cadastrar(String cursoNome) throws Exception {
+		String localizacao = mockMvc
+				.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, autorizacao)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"Tópico em lote\","
+								+ "\"mensagem\":\"Tópico criado pelo teste\",\"cursoNome\":\"" + cursoNome + "\"}"))
+				.andExpect(status().isCreated()).andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		return Long.parseLong(localizacao.substring(localizacao.lastIndexOf('/') + 1));
+	}
+
+	private void responder(long topicoId) {
+		jdbcTemplate.update("INSERT INTO resposta (data_criacao, mensagem, solucao, autor_id, topico_id) "
+				+ "VALUES (CURRENT_TIMESTAMP, 'Resposta do teste', false, 1, ?)", topicoId);
+	}
+
+	private int lote(String uri, String filtro) throws Exception {
+		String corpo = mockMvc
+				.perform(post(uri).header(HttpHeaders.AUTHORIZATION, autorizacao)
+						.contentType(MediaType.APPLICATION_JSON).content(filtro))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(corpo).get("afetados").asInt();
+	}
+
+	private long total(String cursoNome) throws Exception {
+		String corpo = mockMvc.perform(cursoNome == null ? get("/topicos/total")
+				: get("/topicos/total").param("cursoNome", cursoNome)).andExpect(status().isOk()).andReturn()
+				.getResponse().getContentAsString();
+		return objectMapper.readTree(corpo).get("total").asLong();
+	}
+
+}
@@ -0,0 +1,91 @@
+package br.com.totustuus.springboot_rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Respostas do PATCH /topicos/{id} (ver atualizarParcialmente() no
+ * TopicoController): If-Match obrigatório e com uma versão, conflito quando o
+ * tópico está em outra versão e 404 para um tópico inexistente. Em todos os
+ * casos, o UPDATE com a versão e uma única leitura pela chave primária.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TopicoPatchTest {
+
+	@Autowired
+	private WebApplicationContext contexto;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private MockMvc mockMvc;
+	private String autorizacao;
+
+	@Before
+	public void preparar() throws Exception {
+		mockMvc = ConsultasPorRequisicao.mockMvc(contexto);
+		autorizacao = Login.autorizacao(mockMvc);
+	}
+
+	@Test
+	public void semIfMatchDevolve428() throws Exception {
+		mockMvc.perform(alterarStatus(1, null)).andExpect(status().isPreconditionRequired());
+	}
+
+	@Test
+	public void ifMatchSemVersaoDevolve400() throws Exception {
+		mockMvc.perform(alterarStatus(1, "\"abc\"")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void topicoInexistenteDevolve404() throws Exception {
+		mockMvc.perform(alterarStatus(999999, "\"0\"")).andExpect(status().isNotFound())
+				.andExpect(ConsultasPorRequisicao.noMaximo(2));
+	}
+
+	@Test
+	public void versaoDesatualizadaDevolve409SemAlterarOTopico() throws Exception {
+		long versao = versao(1);
+
+		mockMvc.perform(alterarStatus(1, "\"" + versao + "\"")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.versao").value(versao + 1)).andExpect(ConsultasPorRequisicao.noMaximo(2));
+
+		// A mesma versão de novo: outra requisição (a anterior) já alterou o tópico
+		mockMvc.perform(alterarStatus(1, "W/\"" + versao + "\"")).andExpect(status().isConflict())
+				.andExpect(ConsultasPorRequisicao.noMaximo(2));
+
+		assertEquals(versao + 1, versao(1));
+	}
+
+	private MockHttpServletRequestBuilder alterarStatus(long id, String ifMatch) {
+		MockHttpServletRequestBuilder requisicao = patch("/topicos/" + id)
+				.header(HttpHeaders.AUTHORIZATION, autorizacao).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"status\":\"NAO_RESPONDIDO\"}");
+
+		if (ifMatch != null)
+			requisicao.header(HttpHeaders.IF_MATCH, ifMatch);
+
+		return requisicao;
+	}
+
+	private long versao(long id) {
+		return jdbcTemplate.queryForObject("SELECT versao FROM topico WHERE id = ?", Long.class, id);
+	}
+
+}